@@ -1,7 +1,9 @@
 // src/main/java/com/shirtshop/config/ActiveUserFilter.java
 package com.shirtshop.config;
 
-import com.shirtshop.service.UserService;
+import com.shirtshop.entity.User;
+import com.shirtshop.service.ActiveUserWindow;
+import com.shirtshop.service.LastActiveTracker;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,7 +20,8 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class ActiveUserFilter extends OncePerRequestFilter {
 
-    private final UserService userService;
+    private final LastActiveTracker lastActiveTracker;
+    private final ActiveUserWindow activeUserWindow;
 
     @Override
     protected void doFilterInternal(
@@ -29,12 +32,13 @@ public class ActiveUserFilter extends OncePerRequestFilter {
 
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated()) {
-            // เราตั้ง principal = userId ใน JwtAuthenticationFilter ไว้แล้ว
-            String userId = String.valueOf(auth.getPrincipal());
+            // JwtAuthenticationFilter ตั้ง principal = User ไว้แล้ว
+            Object principal = auth.getPrincipal();
+            String userId = (principal instanceof User u) ? u.getId() : null;
             if (userId != null && !userId.isBlank()) {
-                try {
-                    userService.touchLastActive(userId); // อัปเดต lastActive = now
-                } catch (Exception ignored) {}
+                // แค่บันทึกลง buffer; LastActiveTracker จะ bulkWrite ให้เป็นรอบ ๆ
+                lastActiveTracker.touch(userId);
+                activeUserWindow.record(userId);
             }
         }
 
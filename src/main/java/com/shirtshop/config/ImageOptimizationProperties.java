@@ -0,0 +1,49 @@
+package com.shirtshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** คอนฟิกการย่อ/บีบอัดรูปก่อนอัปโหลด (app.images.optimize.*) */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.images.optimize")
+public class ImageOptimizationProperties {
+
+    private boolean enabled = true;
+
+    /** จำนวน worker (decode รูปใหญ่ใช้ heap มาก จึงให้น้อย ๆ) */
+    private int threads = 2;
+
+    /** งานที่รอคิวได้สูงสุด; เต็มแล้วจะอัปโหลดไฟล์เดิมไปเลย */
+    private int queueCapacity = 16;
+
+    /** รอผลนานเกินนี้ → ใช้ไฟล์เดิม */
+    private long timeoutMs = 10_000;
+
+    /** ไฟล์เล็กกว่านี้ไม่ต้องแตะ (ได้ไม่คุ้มเวลา decode) */
+    private long skipBelowBytes = 150 * 1024;
+
+    /** โปรไฟล์ที่ใช้เมื่อโฟลเดอร์ไม่ตรงกับ profiles */
+    private Profile defaults = new Profile();
+
+    /** key = ชื่อท้ายสุดของโฟลเดอร์ Cloudinary เช่น products, avatars, branding, slips */
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+    @Data
+    public static class Profile {
+        /** ด้านที่ยาวที่สุดของรูป (px) */
+        private int maxDimension = 1600;
+        /** คุณภาพ JPEG 0.0–1.0 */
+        private float quality = 0.82f;
+    }
+
+    public Profile profileFor(String folder) {
+        if (folder == null) return defaults;
+        String key = folder.substring(folder.lastIndexOf('/') + 1);
+        return profiles.getOrDefault(key, defaults);
+    }
+}
@@ -4,11 +4,15 @@ package com.shirtshop.config;
 import com.shirtshop.entity.User;
 import com.shirtshop.service.JwtService;
 import com.shirtshop.service.UserService;
+import com.shirtshop.service.UserSnapshotCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,14 +21,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;      // ต้องมี validateToken(String) / extractUserId(String)
-    private final UserService userService;    // ต้องมี findByIdOrThrow(String)
+    private final JwtService jwtService;      // ต้องมี verify(String)
+    private final UserService userService;    // ต้องมี findByIdOrThrow(String) / getById(String)
+    private final UserSnapshotCache userSnapshotCache;
+
+    /**
+     * db     = โหลด User จาก Mongo ทุก request (แบบเดิม)
+     * claims = ใช้ roles/email จาก token + snapshot cache (อ่าน Mongo เฉพาะตอน cache miss)
+     */
+    @Value("${app.security.auth-mode:claims}")
+    private String authMode;
 
     @Override
     protected void doFilterInternal(
@@ -43,36 +58,76 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String token = authHeader.substring(7);
 
         // token ไม่ valid → ปล่อยผ่าน (อย่าฟันธง 401/403 ตรงนี้)
-        if (!jwtService.validateToken(token)) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
-        // ดึง userId จาก token
-        String userId;
+        // verify ครั้งเดียว (มี cache) ได้ทั้ง subject (userId) และ claims อื่น ๆ
+        Claims claims;
         try {
-            userId = jwtService.extractUserId(token);
-        } catch (Exception e) {
+            claims = jwtService.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
             filterChain.doFilter(request, response);
             return;
         }
+        String userId = claims.getSubject();
 
         // ตั้ง Authentication ใน SecurityContext ถ้ายังไม่ได้ตั้ง
         if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            User user = userService.findByIdOrThrow(userId);
+            User user;
+            Set<String> roles;
+
+            if ("claims".equalsIgnoreCase(authMode)) {
+                user = resolveSnapshot(userId);
+                roles = user == null ? null : rolesFromClaims(claims, user);
+            } else {
+                user = userService.findByIdOrThrow(userId);
+                roles = user.getRoles();
+            }
 
-            List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
-                    .map(r -> new SimpleGrantedAuthority("ROLE_" + r.toUpperCase()))
-                    .toList();
+            // user ถูกลบ หรือ roles ใน token ไม่ตรงกับปัจจุบัน → ไม่ตั้ง auth (ให้ FE refresh token ใหม่)
+            if (user != null && roles != null) {
+                List<SimpleGrantedAuthority> authorities = roles.stream()
+                        .map(r -> new SimpleGrantedAuthority("ROLE_" + r.toUpperCase()))
+                        .toList();
 
-            // ใช้ userId เป็น principal (authentication.getName() จะคืน userId)
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(user, null, authorities);
+                // ใช้ User เป็น principal (controller ต่าง ๆ ดึง getId() จาก principal)
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(user, null, authorities);
 
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /** snapshot จาก cache; miss → อ่าน Mongo ครั้งเดียวแล้วเก็บไว้ */
+    private User resolveSnapshot(String userId) {
+        User cached = userSnapshotCache.get(userId);
+        if (cached != null) return cached;
+
+        User loaded = userService.getById(userId).orElse(null);
+        if (loaded != null) {
+            userSnapshotCache.put(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * roles ที่เซ็นมากับ token; ถ้า token ไม่มี claim นี้ (token รุ่นเก่า) ใช้ของ snapshot
+     * ถ้าไม่ตรงกับ snapshot (แอดมินเปลี่ยน role หลังออก token) คืน null
+     */
+    private static Set<String> rolesFromClaims(Claims claims, User user) {
+        Set<String> current = user.getRoles() == null ? Set.of() : user.getRoles().stream()
+                .map(String::toUpperCase)
+                .collect(Collectors.toSet());
+
+        Object raw = claims.get("roles");
+        if (!(raw instanceof Collection<?> list)) {
+            return current;
+        }
+        Set<String> signed = list.stream()
+                .map(String::valueOf)
+                .map(String::toUpperCase)
+                .collect(Collectors.toSet());
+        return signed.equals(current) ? signed : null;
+    }
 }
@@ -0,0 +1,89 @@
+package com.shirtshop.config;
+
+import com.shirtshop.entity.User;
+import com.shirtshop.service.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * จำกัดอัตรา request ตาม app.rate-limit.rules
+ * วางหลัง JwtAuthenticationFilter เพื่อให้ rule แบบ key=user เห็น userId แล้ว
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties props;
+    private final RateLimiter rateLimiter;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !props.isEnabled()
+                || props.getRules().isEmpty()
+                || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long waitNanos = 0;
+
+        for (RateLimitProperties.Rule rule : props.getRules()) {
+            if (rule.getMethod() != null && !rule.getMethod().equalsIgnoreCase(request.getMethod())) continue;
+            if (!pathMatcher.match(rule.getPattern(), path)) continue;
+
+            String key = resolveKey(rule, request);
+            if (key == null) continue;
+
+            waitNanos = Math.max(waitNanos, rateLimiter.tryAcquire(rule, key));
+        }
+
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(
+                    "{\"error\":\"RATE_LIMITED\",\"message\":\"Too many requests. Retry after " + retryAfter + "s.\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * ip → remote address, user → userId หรือ null ถ้ายังไม่ login
+     * remoteAddr มาจาก RemoteIpValve (forward-headers-strategy: native) = hop แรกที่ไม่ใช่ proxy ใน
+     * server.tomcat.remoteip.internal-proxies → ปลอม X-Forwarded-For เพื่อได้ bucket ใหม่ไม่ได้
+     */
+    private String resolveKey(RateLimitProperties.Rule rule, HttpServletRequest request) {
+        if (rule.keyByUser()) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof User u && u.getId() != null) {
+                return "u:" + u.getId();
+            }
+            return null;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,51 @@
+package com.shirtshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/** คอนฟิก rate limit ต่อ route (app.rate-limit.*) */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** จำนวน lock stripe (ปัดขึ้นเป็นเลขยกกำลัง 2) */
+    private int stripes = 64;
+
+    /** จำนวน bucket สูงสุดที่ถือไว้ในหน่วยความจำ */
+    private int maxBuckets = 100_000;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        private String name;
+        /** Ant pattern เช่น /api/tryon/** */
+        private String pattern;
+        /** null = ทุก method */
+        private String method;
+        /** ip = แยกตาม IP, user = แยกตาม userId (ข้ามถ้ายังไม่ login) */
+        private String key = "ip";
+        /** จำนวน request ที่ยิงติดกันได้ (ขนาด bucket) */
+        private long capacity = 10;
+        /** เติม token ครั้งละ refillTokens ทุก ๆ refillPeriod */
+        private long refillTokens = 10;
+        private Duration refillPeriod = Duration.ofMinutes(1);
+
+        public boolean keyByUser() {
+            return "user".equalsIgnoreCase(key);
+        }
+
+        /** token ต่อ nanosecond */
+        public double refillRate() {
+            return (double) refillTokens / Math.max(1L, refillPeriod.toNanos());
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package com.shirtshop.config;
 
 import lombok.RequiredArgsConstructor;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -27,6 +28,7 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final ActiveUserFilter activeUserFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -36,10 +38,14 @@ public class SecurityConfig {
                 .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         // ---------- Public ----------
+                        // StreamingResponseBody จบด้วย ASYNC dispatch — request แรกผ่านการตรวจสิทธิ์ไปแล้ว
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/auth/**").permitAll()   // login/register/refresh
+                        .requestMatchers(HttpMethod.GET,  "/api/products/export").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET,  "/api/products/**").permitAll() // ดูสินค้า public
                         .requestMatchers("/", "/error", "/favicon.ico").permitAll()
-                        .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/actuator/health").permitAll()
+                        .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll() // รวม liveness/readiness probes
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
                         .requestMatchers(HttpMethod.GET,  "/api/settings/branding").permitAll()
@@ -47,7 +53,9 @@ public class SecurityConfig {
                         .requestMatchers(org.springframework.http.HttpMethod.POST, "/api/auth/password/reset").permitAll()
                         .requestMatchers("/api/_debug/email-sender").permitAll()
                         // ---------- Admin only ----------
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")   // metrics/info (rate limiter, outbox, cache)
                         .requestMatchers(HttpMethod.POST,   "/api/products").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST,   "/api/products/import").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT,    "/api/products/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PATCH, "/api/products/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/products/**").hasRole("ADMIN")
@@ -80,6 +88,7 @@ public class SecurityConfig {
 
         // ลำดับฟิลเตอร์
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
         http.addFilterAfter(activeUserFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -108,11 +117,11 @@ public class SecurityConfig {
         // เฮดเดอร์ที่อนุญาต
         cfg.setAllowedHeaders(List.of(
                 "Authorization","Content-Type","Accept","Origin","X-Requested-With",
-                "X-CSRF-TOKEN","Cache-Control","Pragma"
+                "X-CSRF-TOKEN","Cache-Control","Pragma","If-None-Match","If-Modified-Since"
         ));
         // เฮดเดอร์ที่ client มองเห็นได้ (เช่น เอา filename จาก Content-Disposition)
         cfg.setExposedHeaders(List.of(
-                "Authorization","Location","Link","Content-Disposition"
+                "Authorization","Location","Link","Content-Disposition","ETag","Last-Modified"
         ));
         // ให้ส่งคุกกี้/Authorization ได้
         cfg.setAllowCredentials(true);
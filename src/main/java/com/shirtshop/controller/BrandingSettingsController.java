@@ -4,10 +4,12 @@ package com.shirtshop.controller;
 import com.shirtshop.dto.BrandingResponse;
 import com.shirtshop.dto.BrandingUpdateRequest;
 import com.shirtshop.service.BrandingSettingsService;
+import com.shirtshop.service.VersionStamps;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 @RestController
@@ -16,9 +18,14 @@ import org.springframework.web.multipart.MultipartFile;
 public class BrandingSettingsController {
 
     private final BrandingSettingsService service;
+    private final VersionStamps versionStamps;
 
     @GetMapping("/branding")
-    public BrandingResponse getBranding() {
+    public BrandingResponse getBranding(WebRequest request) {
+        VersionStamps.Stamp stamp = versionStamps.current(VersionStamps.BRANDING);
+        if (request.checkNotModified(stamp.etag(VersionStamps.BRANDING), stamp.lastModifiedMillis())) {
+            return null;
+        }
         return service.getBranding();
     }
 
@@ -0,0 +1,25 @@
+package com.shirtshop.controller;
+
+import com.shirtshop.dto.CategoryResponse;
+import com.shirtshop.service.CategoryDirectory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/categories")
+@RequiredArgsConstructor
+public class CategoryController {
+
+    private final CategoryDirectory categoryDirectory;
+
+    /** หมวดทั้งหมด + จำนวนสินค้า / ที่มีของ (อ่านจากแคช) */
+    @GetMapping
+    public ResponseEntity<List<CategoryResponse>> listCategories() {
+        return ResponseEntity.ok(categoryDirectory.list());
+    }
+}
@@ -1,13 +1,14 @@
 package com.shirtshop.controller;
 
-import com.shirtshop.dto.CustomerItemResponse;
 import com.shirtshop.dto.UserDetailResponse;
 import com.shirtshop.service.CustomerAdminService;
+import com.shirtshop.service.JsonArrayStreamer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,19 +17,31 @@ import java.util.Map;
 public class CustomerAdminController {
 
     private final CustomerAdminService customerAdminService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
-    /** ดึงลูกค้าทั้งหมด */
+    /** ดึงลูกค้าทั้งหมด (สตรีมจาก cursor — JSON array เหมือนเดิม) */
     @GetMapping
-    public ResponseEntity<List<CustomerItemResponse>> listAll() {
-        return ResponseEntity.ok(customerAdminService.getAllCustomers());
+    public ResponseEntity<StreamingResponseBody> listAll() {
+        StreamingResponseBody body = out -> jsonArrayStreamer.write(out, customerAdminService.streamAllCustomers(), c -> c);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /** นับจำนวนลูกค้า (ใช้ใน Dashboard) */
     @GetMapping("/count")
     public ResponseEntity<Map<String, Long>> count() {
         long total = customerAdminService.countAll(); // ให้มีเมธอดนี้ใน service (repo.count())
+        long active = customerAdminService.countActive();
         // ใส่ทั้ง "total" และ "count" เผื่อ frontend อิง key ใด key หนึ่ง
-        return ResponseEntity.ok(Map.of("total", total, "count", total));
+        return ResponseEntity.ok(Map.of("total", total, "count", total, "active", active));
+    }
+
+    /** จำนวนลูกค้าที่ active ใน N นาทีล่าสุด (ค่าเริ่มต้น = app.presence.window-minutes) */
+    @GetMapping("/active-count")
+    public ResponseEntity<Map<String, Long>> activeCount(@RequestParam(required = false) Integer minutes) {
+        long active = minutes == null
+                ? customerAdminService.countActive()
+                : customerAdminService.countActive(minutes);
+        return ResponseEntity.ok(Map.of("active", active));
     }
 
     /** ดูรายละเอียดโปรไฟล์ลูกค้า (รับเฉพาะ Mongo ObjectId 24 ตัวฐานสิบหก) */
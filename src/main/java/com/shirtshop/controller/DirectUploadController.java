@@ -0,0 +1,51 @@
+package com.shirtshop.controller;
+
+import com.shirtshop.dto.DirectUploadFinalizeRequest;
+import com.shirtshop.dto.DirectUploadParams;
+import com.shirtshop.dto.DirectUploadResult;
+import com.shirtshop.dto.DirectUploadSignRequest;
+import com.shirtshop.entity.User;
+import com.shirtshop.service.DirectUploadService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * อัปโหลดรูปตรงไป Cloudinary
+ *  - POST /api/uploads/sign     { purpose, targetId } → signed params + ticket
+ *  - POST /api/uploads/finalize { ticket, publicId, version, signature } → บันทึกผลลง order/user/product/branding
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class DirectUploadController {
+
+    private final DirectUploadService directUploadService;
+
+    @PostMapping("/sign")
+    public ResponseEntity<DirectUploadParams> sign(@Valid @RequestBody DirectUploadSignRequest req) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return ResponseEntity.ok(directUploadService.sign(
+                req.getPurpose(), req.getTargetId(), resolveUserId(auth), isAdmin(auth)));
+    }
+
+    @PostMapping("/finalize")
+    public ResponseEntity<DirectUploadResult> finalizeUpload(@Valid @RequestBody DirectUploadFinalizeRequest req) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return ResponseEntity.ok(directUploadService.finalize(req, resolveUserId(auth), isAdmin(auth)));
+    }
+
+    private static String resolveUserId(Authentication auth) {
+        if (auth != null && auth.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        throw new IllegalStateException("User not authenticated");
+    }
+
+    private static boolean isAdmin(Authentication auth) {
+        return auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+    }
+}
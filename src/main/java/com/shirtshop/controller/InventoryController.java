@@ -1,12 +1,13 @@
 // src/main/java/com/shirtshop/controller/InventoryController.java
 package com.shirtshop.controller;
 
-import com.shirtshop.dto.LowStockItemResponse;
 import com.shirtshop.service.InventoryService;
+import com.shirtshop.service.JsonArrayStreamer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -14,6 +15,7 @@ import java.util.List;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     /**
      * Low Stock for Dashboard
@@ -23,7 +25,7 @@ public class InventoryController {
      *  - เพิ่ม threshold ได้ เช่น /api/inventory/low-stock?limit=6&threshold=5
      */
     @GetMapping("/low-stock")
-    public List<LowStockItemResponse> getLowStock(
+    public ResponseEntity<StreamingResponseBody> getLowStock(
             @RequestParam(required = false) Integer limit,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "6") int size,
@@ -34,6 +36,8 @@ public class InventoryController {
             page = 0;
             size = limit;
         }
-        return inventoryService.getLowStock(page, size, threshold);
+        final int p = page, s = size;
+        StreamingResponseBody body = out -> jsonArrayStreamer.write(out, inventoryService.streamLowStock(p, s, threshold), i -> i);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
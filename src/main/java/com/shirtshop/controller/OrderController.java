@@ -11,11 +11,15 @@ import com.shirtshop.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
+import com.shirtshop.service.VersionStamps;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -34,8 +38,18 @@ public class OrderController {
 
     /** ดึงรายละเอียดออเดอร์ตาม id (รับเฉพาะ 24 ตัวอักษร hex) */
     @GetMapping("/{id:[a-f0-9]{24}}")
-    public ResponseEntity<OrderResponse> getOrder(@PathVariable String id) {
-        return ResponseEntity.ok(orderService.getOrder(id));
+    public ResponseEntity<OrderResponse> getOrder(@PathVariable String id, WebRequest request) {
+        // ออเดอร์ไม่เปลี่ยน → 304 โดยไม่ต้องโหลด/serialize ทั้งก้อน
+        Instant updatedAt = orderService.getOrderUpdatedAt(id);
+        if (updatedAt != null) {
+            long millis = updatedAt.toEpochMilli();
+            if (request.checkNotModified(VersionStamps.documentEtag("order", id, millis), millis)) {
+                return null;
+            }
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(orderService.getOrder(id));
     }
 
     /** รายการออเดอร์ของผู้ใช้ปัจจุบัน (มีกรองสถานะ + เพจได้) */
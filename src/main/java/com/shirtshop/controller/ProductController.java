@@ -1,20 +1,37 @@
 package com.shirtshop.controller;
 
+import com.shirtshop.dto.CursorPage;
+import com.shirtshop.dto.ProductCardResponse;
+import com.shirtshop.dto.ProductFilterResponse;
+import com.shirtshop.dto.ProductImportResult;
 import com.shirtshop.dto.ProductRequest;
 import com.shirtshop.dto.ProductResponse;
 import com.shirtshop.dto.TopProductResponse;
 import com.shirtshop.entity.Product;
 import com.shirtshop.mapper.ProductMapper;
+import com.shirtshop.exception.ApiException;
+import com.shirtshop.service.JsonArrayStreamer;
+import com.shirtshop.service.ProductBulkService;
+import com.shirtshop.service.ProductFilterService;
 import com.shirtshop.service.ProductService;
+import com.shirtshop.service.VersionStamps;
 import lombok.RequiredArgsConstructor;
 import lombok.Data;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +41,11 @@ import java.util.stream.Collectors;
 public class ProductController {
 
     private final ProductService productService;
+    private final VersionStamps versionStamps;
+    private final ProductFilterService productFilterService;
+    private final ProductBulkService productBulkService;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final ProductMapper productMapper;
 
     @PostMapping(consumes = { MediaType.MULTIPART_FORM_DATA_VALUE })
     public ResponseEntity<ProductResponse> createProduct(
@@ -35,14 +57,55 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<ProductResponse> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<StreamingResponseBody> getAllProducts(WebRequest request) {
+        // ไม่มีสินค้าไหนเปลี่ยนตั้งแต่ครั้งก่อน → 304 ไม่ต้องโหลดหรือ serialize ทั้งรายการ
+        VersionStamps.Stamp stamp = versionStamps.current(VersionStamps.PRODUCTS);
+        if (request.checkNotModified(stamp.etag(VersionStamps.PRODUCTS), stamp.lastModifiedMillis())) {
+            return null;
+        }
+        // เขียนทีละแถวจาก cursor แทนการสร้าง List ของ entity + DTO ทั้งก้อน
+        StreamingResponseBody body = out -> jsonArrayStreamer.write(out, productService.streamAllProducts(), p -> p);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /** รายการแบบการ์ด + cursor: /api/products/cards?size=20&sort=newest&cursor=... */
+    @GetMapping("/cards")
+    public ResponseEntity<CursorPage<ProductCardResponse>> listCards(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "newest") String sort
+    ) {
+        return ResponseEntity.ok(productService.listCards(cursor, size, sort));
+    }
+
+    /**
+     * กรองสินค้า + facet counts
+     * /api/products/filter?categories=Shirts&colors=Black&sizes=M&minPrice=100&maxPrice=500&inStock=true&page=0&size=20
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<ProductFilterResponse> filterProducts(
+            @RequestParam(required = false) List<String> categories,
+            @RequestParam(required = false) List<String> colors,
+            @RequestParam(required = false) List<String> sizes,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size
+    ) {
+        return ResponseEntity.ok(productFilterService.filter(
+                categories, colors, sizes, minPrice, maxPrice, inStock, page, size));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam("q") String query) {
-        List<Product> products = productService.searchProducts(query);
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        List<Product> products = productService.searchProducts(query, limit);
         return ResponseEntity.ok(products);
     }
 
@@ -57,10 +120,16 @@ public class ProductController {
 
     /** ✅ จำกัดพาธให้รับเฉพาะ ObjectId 24 ตัวฐานสิบหก */
     @GetMapping("/{id:[a-f0-9]{24}}")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable String id) {
-        Product product = productService.getById(id);
-        ProductResponse response = ProductMapper.toResponse(product);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable String id, WebRequest request) {
+        Product product = productService.getById(id); // มาจาก ProductCache
+        if (product.getUpdatedAt() != null) {
+            long millis = product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (request.checkNotModified(VersionStamps.documentEtag("product", id, millis), millis)) {
+                return null;
+            }
+        }
+        ProductResponse response = productMapper.toResponse(product);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
     }
 
     /** ✅ จำกัดพาธให้รับเฉพาะ ObjectId 24 ตัวฐานสิบหก */
@@ -123,6 +192,39 @@ public class ProductController {
     }
 
 
+    // ---------- Bulk import / export (ADMIN) ----------
+
+    /** นำเข้าแบบ streaming: body เป็น NDJSON (1 สินค้าต่อบรรทัด) หรือ CSV (มี header) */
+    @PostMapping(value = "/import", consumes = { "application/x-ndjson", "text/csv" })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportResult> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        ProductImportResult result = contentType.toLowerCase().startsWith("text/csv")
+                ? productBulkService.importCsv(body)
+                : productBulkService.importNdjson(body);
+        return ResponseEntity.ok(result);
+    }
+
+    /** ส่งออกทั้งแคตตาล็อก: /api/products/export?format=ndjson|csv (รูปแบบเดียวกับ import) */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        boolean csv = switch (format.toLowerCase()) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new ApiException("INVALID_FORMAT", "format must be ndjson or csv");
+        };
+        StreamingResponseBody body = csv ? productBulkService::exportCsv : productBulkService::exportNdjson;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", java.nio.charset.StandardCharsets.UTF_8)
+                                 : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"products." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
     @GetMapping("/category/{categoryName}")
     public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String categoryName) {
         List<Product> products = productService.findByCategory(categoryName);
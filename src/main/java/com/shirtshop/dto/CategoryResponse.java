@@ -0,0 +1,4 @@
+package com.shirtshop.dto;
+
+/** หมวดสินค้า + จำนวนสินค้าทั้งหมด / ที่ยังมีของ */
+public record CategoryResponse(String key, String name, long productCount, long inStockCount) {}
@@ -0,0 +1,6 @@
+package com.shirtshop.dto;
+
+import java.util.List;
+
+/** หน้าแบบ keyset: ส่ง nextCursor กลับมาเพื่อขอหน้าถัดไป (null = หน้าสุดท้าย) */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, boolean hasNext) {}
@@ -0,0 +1,21 @@
+package com.shirtshop.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.*;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class DirectUploadFinalizeRequest {
+    @NotBlank
+    private String ticket;
+
+    /** ค่าจาก response ของ Cloudinary */
+    @NotBlank
+    private String publicId;
+
+    @NotBlank
+    private String version;
+
+    @NotBlank
+    private String signature;
+}
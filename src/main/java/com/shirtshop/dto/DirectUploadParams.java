@@ -0,0 +1,17 @@
+package com.shirtshop.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * พารามิเตอร์สำหรับให้ client อัปโหลดตรงไป Cloudinary
+ * client POST multipart ไปที่ uploadUrl โดยส่ง fields ทั้งหมด + file แล้วนำผล (public_id, version, signature)
+ * มาเรียก /api/uploads/finalize พร้อม ticket
+ */
+public record DirectUploadParams(
+        String uploadUrl,
+        Map<String, Object> fields,
+        String ticket,
+        long maxBytes,
+        Instant expiresAt
+) {}
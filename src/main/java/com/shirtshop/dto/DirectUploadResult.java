@@ -0,0 +1,9 @@
+package com.shirtshop.dto;
+
+public record DirectUploadResult(
+        String purpose,
+        String targetId,
+        String publicId,
+        String url,
+        long bytes
+) {}
@@ -0,0 +1,15 @@
+package com.shirtshop.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class DirectUploadSignRequest {
+    /** SLIP | AVATAR | PRODUCT | BRANDING */
+    @NotNull
+    private String purpose;
+
+    /** orderId (SLIP) หรือ productId (PRODUCT); AVATAR/BRANDING ไม่ต้องส่ง */
+    private String targetId;
+}
@@ -0,0 +1,3 @@
+package com.shirtshop.dto;
+
+public record FacetCount(String value, long count) {}
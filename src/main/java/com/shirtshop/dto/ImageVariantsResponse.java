@@ -0,0 +1,9 @@
+package com.shirtshop.dto;
+
+/** ชุด URL ตามขนาดของรูปหนึ่งรูป (srcset ใส่ใน img ได้ตรง ๆ) */
+public record ImageVariantsResponse(
+        String thumb,
+        String card,
+        String detail,
+        String srcset
+) {}
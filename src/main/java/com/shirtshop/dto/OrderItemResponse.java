@@ -0,0 +1,13 @@
+package com.shirtshop.dto;
+
+/** รายการสินค้าในออเดอร์ (snapshot ตอนสั่ง) */
+public record OrderItemResponse(
+        String productId,
+        String name,
+        String imageUrl,
+        ImageVariantsResponse imageVariants,
+        int unitPrice,
+        String color,
+        String size,
+        int quantity
+) {}
@@ -5,12 +5,11 @@ import com.shirtshop.entity.PaymentMethod;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 
 public record OrderResponse(
         String id,
         String userId,
-        List<Map<String, Object>> items,
+        List<OrderItemResponse> items,
         int subTotal,
         int shippingFee,
         int total,
@@ -23,7 +22,7 @@ public record OrderResponse(
 
         // 🔹 เพิ่มใหม่
         String addressId,
-        Map<String, Object> address,
+        ShippingAddressResponse address,
 
         // tracking / note
         String trackingTag,
@@ -0,0 +1,16 @@
+package com.shirtshop.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** สินค้าแบบย่อสำหรับหน้ารายการ (รูปแรก + ราคา + มีของไหม) */
+public record ProductCardResponse(
+        String id,
+        String name,
+        BigDecimal price,
+        String category,
+        String imageUrl,
+        ImageVariantsResponse image,
+        boolean inStock,
+        LocalDateTime createdAt
+) {}
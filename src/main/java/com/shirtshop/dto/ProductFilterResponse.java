@@ -0,0 +1,17 @@
+package com.shirtshop.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** ผลกรองสินค้า + จำนวนต่อ facet (นับจากชุดผลลัพธ์ปัจจุบัน) */
+public record ProductFilterResponse(
+        List<ProductCardResponse> content,
+        int page,
+        int size,
+        long totalElements,
+        List<FacetCount> categories,
+        List<FacetCount> colors,
+        List<FacetCount> sizes,
+        BigDecimal minPrice,
+        BigDecimal maxPrice
+) {}
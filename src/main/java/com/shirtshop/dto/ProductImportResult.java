@@ -0,0 +1,15 @@
+package com.shirtshop.dto;
+
+import java.util.List;
+
+/** สรุปผลนำเข้า: errors เก็บไม่เกิน max-errors แถว (errorsTruncated = มีมากกว่านั้น) */
+public record ProductImportResult(
+        long rows,
+        long inserted,
+        long updated,
+        long failed,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+    public record RowError(long row, String message) {}
+}
@@ -0,0 +1,21 @@
+package com.shirtshop.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** หนึ่งแถวของไฟล์นำเข้า/ส่งออกสินค้า (NDJSON หนึ่งบรรทัด หรือ CSV หนึ่งแถว) */
+@Data
+public class ProductImportRow {
+    private String id;                 // มี = อัปเดตตัวเดิม (ไม่มีก็สร้างใหม่)
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private String category;
+    private List<String> imageUrls;
+    private List<String> availableColors;
+    private List<String> availableSizes;
+    private Integer stockQuantity;     // ใช้เมื่อไม่มี variantStocks
+    private List<VariantStockRequest> variantStocks;
+}
@@ -1,32 +1,33 @@
 package com.shirtshop.dto;
 
-import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-@Builder
-public class ProductResponse {
-    private String id;
-    private String name;
-    private String description;
+/** สร้างโดย ProductMapper (MapStruct) — ลิสต์ที่เป็น null จะได้ลิสต์ว่าง */
+public record ProductResponse(
+        String id,
+        String name,
+        String description,
 
-    // ใช้ BigDecimal ให้ตรงกับ entity
-    private java.math.BigDecimal price;
+        // ใช้ BigDecimal ให้ตรงกับ entity
+        BigDecimal price,
 
-    private String category;
-    private List<String> imageUrls;
+        String category,
+        List<String> imageUrls,
 
-    // ใช้ ImageInfo แยกเป็น class ของมันเอง (ไม่ซ้อนใน ProductResponse)
-    private List<ImageInfo> images;
+        // จับคู่ imagePublicIds[i] กับ imageUrls[i]
+        List<ImageInfo> images,
 
-    private List<String> availableColors;
-    private List<String> availableSizes;
-    private Integer stockQuantity;
+        // URL ตามขนาด ขนานกับ imageUrls
+        List<ImageVariantsResponse> imageVariants,
 
-    // ใช้ LocalDateTime ให้ตรง entity
-    private java.time.LocalDateTime createdAt;
+        List<String> availableColors,
+        List<String> availableSizes,
+        Integer stockQuantity,
 
-    private List<VariantStockResponse> variantStocks;
-}
+        // ใช้ LocalDateTime ให้ตรง entity
+        LocalDateTime createdAt,
+
+        List<VariantStockResponse> variantStocks
+) {}
@@ -0,0 +1,13 @@
+package com.shirtshop.dto;
+
+/** ที่อยู่จัดส่งที่ snapshot ไว้ในออเดอร์ */
+public record ShippingAddressResponse(
+        String recipientName,
+        String phone,
+        String line1,
+        String line2,
+        String subDistrict,
+        String district,
+        String province,
+        String postcode
+) {}
@@ -1,16 +1,16 @@
 // src/main/java/com/shirtshop/dto/cart/CartItemResponse.java
 package com.shirtshop.dto.cart;
 
-import lombok.*;
+import com.shirtshop.dto.ImageVariantsResponse;
 
-@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
-public class CartItemResponse {
-    private String productId;
-    private String name;
-    private String imageUrl;
-    private double unitPrice;
-    private String color;
-    private String size;
-    private int quantity;
-    private double lineTotal;
-}
+public record CartItemResponse(
+        String productId,
+        String name,
+        String imageUrl,
+        ImageVariantsResponse imageVariants,
+        double unitPrice,
+        String color,
+        String size,
+        int quantity,
+        double lineTotal
+) {}
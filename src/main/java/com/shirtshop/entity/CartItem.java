@@ -14,5 +14,6 @@ public class CartItem {
     private String name;
     private String productName;
     private String imageUrl;
+    private ImageVariants imageVariants;
     private int unitPrice; // ถ้าราคาในระบบเป็น BigDecimal ก็ใช้ BigDecimal ได้
 }
@@ -0,0 +1,17 @@
+package com.shirtshop.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** ตัวนับเวอร์ชันของข้อมูลทั้งชุด (เช่น products, branding) ใช้ทำ ETag ของ endpoint แบบรายการ */
+@Data
+@Document(collection = "collection_versions")
+public class CollectionVersion {
+    @Id
+    private String id;          // ชื่อชุดข้อมูล
+    private long version;
+    private Instant updatedAt;
+}
@@ -0,0 +1,34 @@
+package com.shirtshop.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * งานลบรูปบน Cloudinary ที่รอทำ (outbox)
+ * - เขียนทันทีหลังเอกสารที่อ้างรูปถูกบันทึก แล้ว ImageDeletionOutbox ค่อยลบจริงเบื้องหลัง
+ * - nextAttemptAt ใช้ทั้งเป็นเวลา retry และ lease กันสอง instance หยิบงานเดียวกัน
+ * - deadAt != null = เกินจำนวนครั้งที่ให้ลองแล้ว เก็บไว้ให้ตรวจสอบ
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+@Document(collection = "image_delete_outbox")
+public class ImageDeletion {
+    @Id
+    private String id;
+
+    private String publicId;
+
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    private String lastError;
+
+    private Instant deadAt;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,12 @@
+package com.shirtshop.entity;
+
+import lombok.Data;
+
+/** URL รูปย่อตามความกว้าง (Cloudinary f_auto,q_auto) — คำนวณตอนบันทึก ไม่ต้องสร้างใหม่ทุกครั้งที่อ่าน */
+@Data
+public class ImageVariants {
+    private String thumb;  // รูปเล็กในตะกร้า/ออเดอร์
+    private String card;   // การ์ดหน้ารายการ
+    private String detail; // หน้ารายละเอียดสินค้า
+    private String srcset; // "url 160w, url 480w, url 1080w" (null ถ้าไม่ใช่รูปจาก Cloudinary)
+}
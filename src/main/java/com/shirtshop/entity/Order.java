@@ -50,6 +50,8 @@ public class Order {
     private Instant verifiedAt;        // เวลาอนุมัติ/ปฏิเสธ
     private boolean stockAdjusted;     // เคยตัดสต๊อกแล้ว
     private boolean stockRestored;     // เคยคืนสต๊อกแล้ว
+    private boolean salesPending;        // PAID แล้วแต่ยังไม่ได้บวกยอดลง product_sales_daily (ProductSalesService ลองใหม่)
+    private boolean salesRevertPending;  // ปิดจาก PAID แล้วแต่ยังไม่ได้หักยอดคืน
     private Instant createdAt;
     private Instant updatedAt;
     private Instant paidAt;
@@ -8,6 +8,7 @@ public class OrderItem {
     private String productId;
     private String name;
     private String imageUrl;
+    private ImageVariants imageVariants;
     private int unitPrice;
     private String color;
     private String size;
@@ -0,0 +1,21 @@
+package com.shirtshop.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** OTP ที่รอยืนยัน (ใช้เมื่อ app.otp.store=mongo) — ลบอัตโนมัติด้วย TTL index บน expiresAt */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+@Document(collection = "otp_tokens")
+public class OtpToken {
+    @Id
+    private String email;      // หนึ่งอีเมล มีได้ OTP เดียว (ขอใหม่ = ทับของเดิม)
+
+    private String otpHash;    // SHA-256 ของ email + otp (ไม่เก็บ OTP ตรง ๆ)
+
+    private Instant expiresAt;
+}
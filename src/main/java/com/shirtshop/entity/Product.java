@@ -15,8 +15,10 @@ public class Product {
     private String description;
     private BigDecimal price;
     private String category;
+    private String categoryKey;      // CategoryKeys.normalize(category) — ใช้ค้นหา/จัดกลุ่มแบบ exact
     private List<String> imageUrls;
     private List<String> imagePublicIds;
+    private List<ImageVariants> imageVariants; // ขนานกับ imageUrls (ImageVariantFactory)
     private List<String> availableColors;
     private List<String> availableSizes;
     private int stockQuantity;
@@ -0,0 +1,24 @@
+package com.shirtshop.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * ยอดขายสะสมต่อสินค้าต่อวัน (เวลาไทย) — $inc ตอนออเดอร์เปลี่ยนเป็น PAID, หักคืนเมื่อออเดอร์ PAID ถูกปิด
+ * id = productId + ":" + day
+ */
+@Data
+@Document(collection = "product_sales_daily")
+public class ProductSalesDaily {
+    @Id
+    private String id;
+    private String productId;
+    private String day;        // yyyy-MM-dd
+    private String name;       // ชื่อสินค้าล่าสุดจาก OrderItem
+    private long units;
+    private long revenue;      // บาท (unitPrice ของ OrderItem เป็นจำนวนเต็ม)
+    private List<String> applied; // key ของออเดอร์ที่ลงยอดแล้ว (orderId / orderId:void) กันนับซ้ำตอน retry
+}
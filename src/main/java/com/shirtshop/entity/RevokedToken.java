@@ -0,0 +1,29 @@
+package com.shirtshop.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * refresh token ที่ใช้ไปแล้ว/ถูกเพิกถอน
+ * - id = jti ของ token ที่ถูกหมุนไปแล้ว หรือ "fam:" + familyId เมื่อเพิกถอนทั้งสาย
+ * - expiresAt มี TTL index: พ้นอายุ token แล้วไม่ต้องจำอีก
+ */
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+@Document(collection = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String familyId;
+
+    private Instant expiresAt;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,14 @@
+package com.shirtshop.exception;
+
+import lombok.Getter;
+
+/** ระบบรับงานไม่ไหวชั่วคราว → GlobalExceptionHandler ตอบ 503 + Retry-After */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,31 @@
+package com.shirtshop.mapper;
+
+import com.shirtshop.dto.ImageVariantsResponse;
+import com.shirtshop.dto.cart.CartItemResponse;
+import com.shirtshop.dto.cart.CartResponse;
+import com.shirtshop.entity.Cart;
+import com.shirtshop.entity.CartItem;
+import com.shirtshop.entity.ImageVariants;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper
+public interface CartMapper {
+
+    @Mapping(target = "name", source = "productName") // ใช้ productName
+    @Mapping(target = "lineTotal", expression = "java((double) item.getUnitPrice() * item.getQuantity())")
+    CartItemResponse toItem(CartItem item);
+
+    ImageVariantsResponse toImageVariants(ImageVariants v);
+
+    List<CartItemResponse> toItems(List<CartItem> items);
+
+    default CartResponse toResponse(Cart cart) {
+        List<CartItemResponse> items = cart.getItems() == null ? List.of() : toItems(cart.getItems());
+        double sub = 0;
+        for (CartItemResponse i : items) sub += i.lineTotal();
+        return new CartResponse(items, sub);
+    }
+}
@@ -0,0 +1,26 @@
+package com.shirtshop.mapper;
+
+import com.shirtshop.dto.ImageVariantsResponse;
+import com.shirtshop.dto.OrderItemResponse;
+import com.shirtshop.dto.OrderResponse;
+import com.shirtshop.dto.ShippingAddressResponse;
+import com.shirtshop.entity.ImageVariants;
+import com.shirtshop.entity.Order;
+import com.shirtshop.entity.OrderItem;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/** Order → OrderResponse แบบ typed record (แทน LinkedHashMap ต่อ item/ที่อยู่) */
+@Mapper
+public interface OrderMapper {
+
+    @Mapping(target = "address", source = "shippingAddress")
+    @Mapping(target = "items", defaultExpression = "java(java.util.List.of())")
+    OrderResponse toResponse(Order o);
+
+    OrderItemResponse toItem(OrderItem item);
+
+    ImageVariantsResponse toImageVariants(ImageVariants v);
+
+    ShippingAddressResponse toAddress(Order.ShippingAddress address);
+}
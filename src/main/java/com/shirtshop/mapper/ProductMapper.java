@@ -1,46 +1,60 @@
 package com.shirtshop.mapper;
 
-import com.shirtshop.dto.*;
+import com.shirtshop.dto.ImageInfo;
+import com.shirtshop.dto.ImageVariantsResponse;
+import com.shirtshop.dto.ProductCardResponse;
+import com.shirtshop.dto.ProductResponse;
+import com.shirtshop.dto.VariantStockResponse;
+import com.shirtshop.entity.ImageVariants;
 import com.shirtshop.entity.Product;
 import com.shirtshop.entity.VariantStock;
-import com.shirtshop.dto.ImageInfo;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Product → DTO (MapStruct สร้าง implementation ตอนคอมไพล์, inject เป็น Spring bean) */
+@Mapper
+public interface ProductMapper {
+
+    @Mapping(target = "images", expression = "java(images(p))")
+    @Mapping(target = "imageVariants", defaultExpression = "java(java.util.List.of())")
+    @Mapping(target = "variantStocks", defaultExpression = "java(java.util.List.of())")
+    ProductResponse toResponse(Product p);
+
+    VariantStockResponse toVariant(VariantStock v);
+
+    ImageVariantsResponse toImageVariants(ImageVariants v);
+
+    /** ใช้กับ Product ที่ดึงมาแบบ projection (imageUrls/imageVariants มีแค่รูปแรก) */
+    @Mapping(target = "imageUrl", expression = "java(firstImage(p.getImageUrls()))")
+    @Mapping(target = "image", expression = "java(firstVariants(p.getImageVariants()))")
+    @Mapping(target = "inStock", expression = "java(p.getStockQuantity() > 0)")
+    ProductCardResponse toCard(Product p);
+
+    /** ลิสต์ String ใช้ตัวเดิม ไม่ต้อง copy (null → ลิสต์ว่าง) */
+    default List<String> strings(List<String> in) {
+        return in == null ? List.of() : in;
+    }
 
-import java.util.stream.Collectors;
-
-public class ProductMapper {
-
-    public static ProductResponse toResponse(Product p) {
-        return ProductResponse.builder()
-                .id(p.getId())
-                .name(p.getName())
-                .description(p.getDescription())
-                .price(p.getPrice()) // BigDecimal → BigDecimal ตรงกัน
-                .category(p.getCategory())
-                .imageUrls(p.getImageUrls())
-                .availableColors(p.getAvailableColors())
-                .availableSizes(p.getAvailableSizes())
-                .stockQuantity(p.getStockQuantity())
-                .createdAt(p.getCreatedAt()) // LocalDateTime → LocalDateTime
-                .variantStocks(p.getVariantStocks() == null ? null :
-                        p.getVariantStocks().stream()
-                                .map(ProductMapper::toVariant)
-                                .collect(Collectors.toList())
-                )
-                .build();
+    default List<ImageInfo> images(Product p) {
+        List<String> ids = p.getImagePublicIds();
+        List<String> urls = p.getImageUrls();
+        if (ids == null || urls == null) return List.of();
+        int n = Math.min(ids.size(), urls.size());
+        List<ImageInfo> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new ImageInfo(ids.get(i), urls.get(i)));
+        }
+        return out;
     }
 
-    private static VariantStockResponse toVariant(VariantStock v) {
-        return VariantStockResponse.builder()
-                .color(v.getColor())
-                .size(v.getSize())
-                .quantity(v.getQuantity())
-                .build();
+    default String firstImage(List<String> urls) {
+        return (urls == null || urls.isEmpty()) ? null : urls.get(0);
     }
 
-    private static ImageInfo toImageInfo(ImageInfo img) {
-        return ImageInfo.builder()
-                .publicId(img.getPublicId())
-                .url(img.getUrl())
-                .build();
+    default ImageVariantsResponse firstVariants(List<ImageVariants> variants) {
+        return (variants == null || variants.isEmpty()) ? null : toImageVariants(variants.get(0));
     }
 }
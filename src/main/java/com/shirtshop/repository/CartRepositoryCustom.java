@@ -0,0 +1,33 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.Cart;
+import com.shirtshop.entity.CartItem;
+import com.shirtshop.entity.ImageVariants;
+
+import java.time.Instant;
+
+/**
+ * อัปเดตตะกร้าแบบ field-level ($push / $set items.$ / $pull) ในคำสั่งเดียว
+ * ทุกเมธอดคืน Cart หลังอัปเดต (findAndModify returnNew) หรือ null ถ้าไม่เจอ
+ */
+public interface CartRepositoryCustom {
+
+    /** $push item ใหม่ (สร้างตะกร้าให้ถ้ายังไม่มี) */
+    Cart pushItem(String userId, CartItem item, Instant at);
+
+    /**
+     * $set quantity + snapshot ของ item ที่ match (productId/color/size ตามที่เก็บใน DB)
+     */
+    Cart updateItem(String userId, CartItem match, int quantity,
+                    String productName, String imageUrl, ImageVariants imageVariants,
+                    int unitPrice, Instant at);
+
+    /** $set quantity ของ item ที่ match อย่างเดียว */
+    Cart updateItemQuantity(String userId, CartItem match, int quantity, Instant at);
+
+    /** $pull item (เทียบ color/size แบบไม่สนตัวพิมพ์ + trim) */
+    Cart pullItem(String userId, String productId, String color, String size, Instant at);
+
+    /** $set items = [] */
+    Cart clearItems(String userId, Instant at);
+}
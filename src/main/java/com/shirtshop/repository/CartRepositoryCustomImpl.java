@@ -0,0 +1,96 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.Cart;
+import com.shirtshop.entity.CartItem;
+import com.shirtshop.entity.ImageVariants;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+@RequiredArgsConstructor
+public class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Cart pushItem(String userId, CartItem item, Instant at) {
+        Update u = new Update()
+                .push("items", item)
+                .set("updatedAt", at)
+                .setOnInsert("createdAt", at);
+        return mongoTemplate.findAndModify(byUser(userId), u,
+                FindAndModifyOptions.options().returnNew(true).upsert(true), Cart.class);
+    }
+
+    @Override
+    public Cart updateItem(String userId, CartItem match, int quantity,
+                           String productName, String imageUrl, ImageVariants imageVariants,
+                           int unitPrice, Instant at) {
+        Update u = new Update()
+                .set("items.$.quantity", quantity)
+                .set("items.$.productName", productName)
+                .set("items.$.imageUrl", imageUrl)
+                .set("items.$.imageVariants", imageVariants)
+                .set("items.$.unitPrice", unitPrice)
+                .set("updatedAt", at);
+        return mongoTemplate.findAndModify(byItem(userId, match), u,
+                FindAndModifyOptions.options().returnNew(true), Cart.class);
+    }
+
+    @Override
+    public Cart updateItemQuantity(String userId, CartItem match, int quantity, Instant at) {
+        Update u = new Update()
+                .set("items.$.quantity", quantity)
+                .set("updatedAt", at);
+        return mongoTemplate.findAndModify(byItem(userId, match), u,
+                FindAndModifyOptions.options().returnNew(true), Cart.class);
+    }
+
+    @Override
+    public Cart pullItem(String userId, String productId, String color, String size, Instant at) {
+        Document cond = new Document("productId", productId)
+                .append("color", equalsIgnoreCaseTrim(color))
+                .append("size", equalsIgnoreCaseTrim(size));
+        Update u = new Update()
+                .pull("items", cond)
+                .set("updatedAt", at);
+        return mongoTemplate.findAndModify(byUser(userId), u,
+                FindAndModifyOptions.options().returnNew(true), Cart.class);
+    }
+
+    @Override
+    public Cart clearItems(String userId, Instant at) {
+        Update u = new Update()
+                .set("items", new ArrayList<CartItem>())
+                .set("updatedAt", at);
+        return mongoTemplate.findAndModify(byUser(userId), u,
+                FindAndModifyOptions.options().returnNew(true), Cart.class);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static Query byUser(String userId) {
+        return Query.query(Criteria.where("userId").is(userId));
+    }
+
+    /** ใช้ค่าที่เก็บใน DB ตรง ๆ เพื่อให้ positional operator ($) ชี้ไปที่ item ที่ถูกตัว */
+    private static Query byItem(String userId, CartItem match) {
+        return Query.query(Criteria.where("userId").is(userId)
+                .and("items").elemMatch(Criteria.where("productId").is(match.getProductId())
+                        .and("color").is(match.getColor())
+                        .and("size").is(match.getSize())));
+    }
+
+    private static Object equalsIgnoreCaseTrim(String s) {
+        if (s == null) return null;
+        return Pattern.compile("^\\s*" + Pattern.quote(s.trim()) + "\\s*$", Pattern.CASE_INSENSITIVE);
+    }
+}
@@ -6,12 +6,13 @@ import com.shirtshop.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
-public interface OrderRepository extends MongoRepository<Order, String> {
+public interface OrderRepository extends MongoRepository<Order, String>, OrderRepositoryCustom {
 
     // Pageable, คืนค่าเป็น Page
     Page<Order> findByUserId(String userId, Pageable pageable);
@@ -28,4 +29,8 @@ public interface OrderRepository extends MongoRepository<Order, String> {
 
     List<Order> findByStatusAndExpiresAtBefore(OrderStatus status, Instant time);
 
+    /** ดึงแค่ updatedAt (ใช้ทำ ETag โดยไม่ต้องโหลดทั้งออเดอร์) */
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'updatedAt': 1 }")
+    Optional<Order> findStampById(String id);
+
 }
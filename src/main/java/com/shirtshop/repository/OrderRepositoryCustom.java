@@ -0,0 +1,19 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.Order;
+import com.shirtshop.entity.OrderStatus;
+
+import java.time.Instant;
+
+/**
+ * เปลี่ยนสถานะออเดอร์ด้วย $set เฉพาะฟิลด์ที่เกี่ยวข้อง
+ * มีเงื่อนไข status = expected (compare-and-set) → คืน null ถ้าสถานะถูกเปลี่ยนไปก่อนแล้ว
+ */
+public interface OrderRepositoryCustom {
+
+    /** → PAID, ล้าง statusNote, ตั้ง salesPending; ถ้า trackingTag != null จะตั้ง trackingTag + trackingCreatedAt ด้วย */
+    Order markPaid(String orderId, OrderStatus expected, String trackingTag, Instant at);
+
+    /** → REJECTED / CANCELED พร้อม note (ปิดจาก PAID จะตั้ง salesRevertPending) */
+    Order close(String orderId, OrderStatus expected, OrderStatus closedStatus, String note, Instant at);
+}
@@ -0,0 +1,50 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.Order;
+import com.shirtshop.entity.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Order markPaid(String orderId, OrderStatus expected, String trackingTag, Instant at) {
+        Update u = new Update()
+                .set("status", OrderStatus.PAID)
+                .set("statusNote", null)
+                .set("paidAt", at)
+                .set("salesPending", true)
+                .set("updatedAt", at);
+        if (trackingTag != null) {
+            u.set("trackingTag", trackingTag).set("trackingCreatedAt", at);
+        }
+        return mongoTemplate.findAndModify(byIdAndStatus(orderId, expected), u,
+                FindAndModifyOptions.options().returnNew(true), Order.class);
+    }
+
+    @Override
+    public Order close(String orderId, OrderStatus expected, OrderStatus closedStatus, String note, Instant at) {
+        Update u = new Update()
+                .set("status", closedStatus)
+                .set("statusNote", note)
+                .set("updatedAt", at);
+        if (expected == OrderStatus.PAID) {
+            u.set("salesRevertPending", true); // ยอดขายที่นับไปแล้วต้องหักคืน
+        }
+        return mongoTemplate.findAndModify(byIdAndStatus(orderId, expected), u,
+                FindAndModifyOptions.options().returnNew(true), Order.class);
+    }
+
+    private static Query byIdAndStatus(String orderId, OrderStatus expected) {
+        return Query.query(Criteria.where("_id").is(orderId).and("status").is(expected));
+    }
+}
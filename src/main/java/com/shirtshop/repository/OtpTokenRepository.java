@@ -0,0 +1,7 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.OtpToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface OtpTokenRepository extends MongoRepository<OtpToken, String> {
+}
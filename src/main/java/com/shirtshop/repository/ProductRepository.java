@@ -1,14 +1,19 @@
 package com.shirtshop.repository;
 
 import com.shirtshop.entity.Product;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends MongoRepository<Product, String> {
+public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
     List<Product> findByNameContainingIgnoreCase(String name);
-    List<Product> findByCategoryIgnoreCase(String category);
+    List<Product> findByCategoryKey(String categoryKey);
 
+    /** เดิน cursor ทั้ง collection (ต้องปิด Stream หลังใช้) */
+    @Meta(cursorBatchSize = 200)
+    Stream<Product> streamAllBy();
 }
\ No newline at end of file
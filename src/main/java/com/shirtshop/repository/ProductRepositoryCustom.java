@@ -0,0 +1,30 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.ImageVariants;
+import com.shirtshop.entity.Product;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/** ปรับสต๊อกด้วย $inc โดยไม่ต้องโหลด Product มาก่อน + query รายการแบบ keyset */
+public interface ProductRepositoryCustom {
+
+    /**
+     * $inc variantStocks.$.quantity และ stockQuantity ด้วย delta
+     * ถ้า delta < 0 จะ match เฉพาะ variant ที่มีของพอ (quantity >= -delta) เพื่อกันติดลบ
+     * @return false ถ้าไม่เจอ product/variant หรือสต๊อกไม่พอ
+     */
+    boolean incVariantStock(String productId, String color, String size, int delta);
+
+    /**
+     * $push รูปต่อท้าย imagePublicIds/imageUrls/imageVariants ใน findAndModify เดียว (ไม่ทับฟิลด์อื่น เช่นสต๊อก)
+     * @return product หลังแก้ หรือ null ถ้าไม่เจอ product หรือมี publicId นี้อยู่แล้ว
+     */
+    Product appendImage(String productId, String publicId, String url, ImageVariants variants);
+
+    /**
+     * รายการสินค้าแบบ keyset เรียงตาม (field, _id) โดยดึงเฉพาะฟิลด์ของการ์ด (รูปแรกรูปเดียว)
+     * @param afterValue/afterId ค่าของแถวสุดท้ายในหน้าก่อน (afterId = null → หน้าแรก)
+     */
+    List<Product> findCardPage(String field, Sort.Direction direction, Object afterValue, String afterId, int limit);
+}
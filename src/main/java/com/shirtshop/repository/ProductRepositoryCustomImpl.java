@@ -0,0 +1,109 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.ImageVariants;
+import com.shirtshop.entity.Product;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    /** index ให้ตรงกับลำดับ sort ของ findCardPage (Mongo เดิน index ย้อนกลับได้ ไม่ต้องมีแยก asc/desc) */
+    @PostConstruct
+    void ensureIndexes() {
+        IndexOperations ops = mongoTemplate.indexOps(Product.class);
+        ops.ensureIndex(new Index().on("createdAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .named("createdAt_-1__id_-1"));
+        ops.ensureIndex(new Index().on("name", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("name_1__id_1"));
+        // ตัวกรองของ ProductFilterService
+        ops.ensureIndex(new Index().on("categoryKey", Sort.Direction.ASC).named("categoryKey_1"));
+        ops.ensureIndex(new Index().on("variantStocks.color", Sort.Direction.ASC).named("variantStocks.color_1"));
+        ops.ensureIndex(new Index().on("variantStocks.size", Sort.Direction.ASC).named("variantStocks.size_1"));
+    }
+
+    @Override
+    public boolean incVariantStock(String productId, String color, String size, int delta) {
+        Criteria variant = Criteria.where("color").in(textValues(color))
+                .and("size").in(textValues(size));
+        if (delta < 0) {
+            variant = variant.and("quantity").gte(-delta);
+        }
+        Query q = Query.query(Criteria.where("_id").is(productId)
+                .and("variantStocks").elemMatch(variant));
+        Update u = new Update()
+                .inc("variantStocks.$.quantity", delta)
+                .inc("stockQuantity", delta)
+                .set("updatedAt", LocalDateTime.now());
+        return mongoTemplate.updateFirst(q, u, Product.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Product appendImage(String productId, String publicId, String url, ImageVariants variants) {
+        // publicId เดิมซ้ำ (finalize ซ้ำ) → ไม่ match → null
+        Query q = Query.query(Criteria.where("_id").is(productId).and("imagePublicIds").ne(publicId));
+        Update u = new Update()
+                .push("imagePublicIds", publicId)
+                .push("imageUrls", url)
+                .push("imageVariants", variants)
+                .set("updatedAt", LocalDateTime.now());
+        return mongoTemplate.findAndModify(q, u, FindAndModifyOptions.options().returnNew(true), Product.class);
+    }
+
+    @Override
+    public List<Product> findCardPage(String field, Sort.Direction direction, Object afterValue, String afterId, int limit) {
+        Query q = new Query();
+        if (afterId != null) {
+            q.addCriteria(after(field, direction, afterValue, afterId));
+        }
+        q.with(Sort.by(direction, field).and(Sort.by(direction, "_id")));
+        q.limit(limit);
+        q.fields()
+                .include("name", "price", "category", "stockQuantity", "createdAt")
+                .slice("imageUrls", 1)
+                .slice("imageVariants", 1);
+        return mongoTemplate.find(q, Product.class);
+    }
+
+    /**
+     * แถวที่อยู่ "หลัง" (afterValue, afterId) ตามลำดับ sort
+     * Mongo เรียง null/ไม่มีฟิลด์ไว้ต่ำสุด: asc → null มาก่อน, desc → null อยู่ท้าย
+     */
+    private static Criteria after(String field, Sort.Direction direction, Object afterValue, String afterId) {
+        boolean asc = direction.isAscending();
+        Criteria idAfter = asc ? Criteria.where("_id").gt(afterId) : Criteria.where("_id").lt(afterId);
+
+        if (afterValue == null) {
+            Criteria sameNull = new Criteria().andOperator(Criteria.where(field).is(null), idAfter);
+            return asc ? new Criteria().orOperator(sameNull, Criteria.where(field).ne(null)) : sameNull;
+        }
+
+        Criteria beyond = asc ? Criteria.where(field).gt(afterValue) : Criteria.where(field).lt(afterValue);
+        Criteria same = new Criteria().andOperator(Criteria.where(field).is(afterValue), idAfter);
+        return asc
+                ? new Criteria().orOperator(beyond, same)
+                : new Criteria().orOperator(beyond, same, Criteria.where(field).is(null));
+    }
+
+    /** ค่าว่างให้ match ได้ทั้ง null และ "" (เหมือน safe() ใน InventoryService) */
+    private static List<String> textValues(String value) {
+        if (value == null || value.isEmpty()) {
+            return Arrays.asList(null, "");
+        }
+        return List.of(value);
+    }
+}
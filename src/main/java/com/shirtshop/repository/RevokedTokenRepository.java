@@ -0,0 +1,11 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.RevokedToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends MongoRepository<RevokedToken, String> {
+    List<RevokedToken> findByCreatedAtGreaterThanEqual(Instant since);
+}
@@ -1,13 +1,23 @@
 package com.shirtshop.repository;
 
 import com.shirtshop.entity.User;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
     Optional<User> findByProviderId(String providerId);
+    long countByLastActiveGreaterThanEqual(Instant since); // ใช้ index ของ lastActive
+
+    /** เดิน cursor เฉพาะฟิลด์ที่ตารางลูกค้าใช้ (ต้องปิด Stream หลังใช้) */
+    @Meta(cursorBatchSize = 200)
+    @Query(value = "{}", fields = "{ email: 1, username: 1, firstName: 1, lastName: 1, displayName: 1, roles: 1, active: 1, lastActive: 1 }")
+    Stream<User> streamCustomerRows();
 }
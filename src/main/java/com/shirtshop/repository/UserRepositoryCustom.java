@@ -0,0 +1,19 @@
+package com.shirtshop.repository;
+
+import java.time.Instant;
+import java.util.Map;
+
+/** อัปเดตเฉพาะฟิลด์ ($set) โดยไม่ต้องโหลดเอกสาร User ทั้งก้อนมาก่อน */
+public interface UserRepositoryCustom {
+
+    /** $set active + lastActive; คืน true ถ้าเจอ user */
+    boolean updateActive(String userId, boolean active, Instant at);
+
+    boolean updateActiveByEmail(String email, boolean active, Instant at);
+
+    /** $set lastActive อย่างเดียว */
+    boolean updateLastActive(String userId, Instant at);
+
+    /** $set lastActive หลาย user ใน bulkWrite (unordered) เดียว; คืนจำนวนที่ match */
+    int bulkUpdateLastActive(Map<String, Instant> lastActiveByUserId);
+}
@@ -0,0 +1,51 @@
+package com.shirtshop.repository;
+
+import com.shirtshop.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateActive(String userId, boolean active, Instant at) {
+        Update u = new Update().set("active", active).set("lastActive", at);
+        return mongoTemplate.updateFirst(byId(userId), u, User.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean updateActiveByEmail(String email, boolean active, Instant at) {
+        Query q = Query.query(Criteria.where("email").is(email));
+        Update u = new Update().set("active", active).set("lastActive", at);
+        return mongoTemplate.updateFirst(q, u, User.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean updateLastActive(String userId, Instant at) {
+        Update u = new Update().set("lastActive", at);
+        return mongoTemplate.updateFirst(byId(userId), u, User.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public int bulkUpdateLastActive(Map<String, Instant> lastActiveByUserId) {
+        if (lastActiveByUserId == null || lastActiveByUserId.isEmpty()) return 0;
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        lastActiveByUserId.forEach((userId, at) ->
+                ops.updateOne(byId(userId), new Update().set("lastActive", at)));
+        return ops.execute().getMatchedCount();
+    }
+
+    private static Query byId(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+}
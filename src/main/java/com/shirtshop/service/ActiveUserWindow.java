@@ -0,0 +1,97 @@
+package com.shirtshop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ตัวนับ "user ที่ active ใน N นาทีล่าสุด" แบบ sliding window (bucket ละ 1 นาที)
+ * - record() ถูกเรียกจาก event การยืนยันตัวตน (ทุก request ที่ล็อกอิน / login)
+ * - user หนึ่งคนถูกนับใน bucket ของนาทีล่าสุดที่เห็นเท่านั้น → ผลรวม bucket = จำนวน user ไม่ซ้ำ
+ * - count() รวม bucket ไม่เกิน window-minutes ตัว → O(1) ไม่ขึ้นกับจำนวน user ทั้งหมด
+ * หมายเหตุ: นับเฉพาะ request ที่เข้าเครื่องนี้ ถ้ารันหลาย instance ให้ใช้ค่าจาก DB แทน
+ */
+@Component
+public class ActiveUserWindow {
+
+    private final int windowMinutes;
+    private final long startedMinute;
+
+    /** userId → นาที (epoch minute) ล่าสุดที่เห็น */
+    private final Map<String, Long> lastMinuteByUser = new ConcurrentHashMap<>();
+
+    // ring buffer: bucket i เก็บจำนวน user ของนาที stamps[i]
+    private final long[] stamps;
+    private final int[] counts;
+
+    public ActiveUserWindow(@Value("${app.presence.window-minutes:15}") int windowMinutes) {
+        this.windowMinutes = Math.max(1, windowMinutes);
+        this.stamps = new long[this.windowMinutes];
+        this.counts = new int[this.windowMinutes];
+        this.startedMinute = currentMinute();
+    }
+
+    public int getWindowMinutes() {
+        return windowMinutes;
+    }
+
+    public void record(String userId) {
+        if (userId == null || userId.isBlank()) return;
+        long minute = currentMinute();
+        Long prev = lastMinuteByUser.put(userId, minute);
+        if (prev != null && prev == minute) return; // ทางด่วน: นาทีนี้นับไปแล้ว
+
+        synchronized (this) {
+            if (prev != null && prev > minute) {
+                // มี thread อื่นบันทึกนาทีที่ใหม่กว่าไปแล้ว คืนค่านั้นไว้
+                lastMinuteByUser.put(userId, prev);
+                return;
+            }
+            if (prev != null) {
+                int pi = index(prev);
+                if (stamps[pi] == prev && counts[pi] > 0) counts[pi]--;
+            }
+            int i = index(minute);
+            if (stamps[i] != minute) {
+                stamps[i] = minute;
+                counts[i] = 0;
+            }
+            counts[i]++;
+        }
+    }
+
+    /**
+     * จำนวน user ไม่ซ้ำที่ active ใน {@code minutes} นาทีล่าสุด
+     * คืน empty ถ้าตอบจากหน่วยความจำไม่ได้ (เพิ่งสตาร์ทยังไม่ครบช่วง หรือขอช่วงยาวกว่า window)
+     */
+    public synchronized OptionalLong count(int minutes) {
+        long now = currentMinute();
+        if (minutes < 1 || minutes > windowMinutes || now - startedMinute < minutes) {
+            return OptionalLong.empty();
+        }
+        long total = 0;
+        for (int i = 0; i < windowMinutes; i++) {
+            if (now - stamps[i] < minutes) total += counts[i];
+        }
+        return OptionalLong.of(total);
+    }
+
+    /** ทิ้ง user ที่หลุด window แล้ว เพื่อไม่ให้ map โตไม่สิ้นสุด */
+    @Scheduled(fixedDelay = 60_000)
+    public void prune() {
+        long oldest = currentMinute() - windowMinutes;
+        lastMinuteByUser.entrySet().removeIf(e -> e.getValue() <= oldest);
+    }
+
+    private int index(long minute) {
+        return (int) (minute % windowMinutes);
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+}
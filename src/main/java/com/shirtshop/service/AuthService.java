@@ -9,11 +9,11 @@ import com.shirtshop.exception.ApiException;
 import com.shirtshop.repository.UserRepository;
 import com.shirtshop.util.EmailSender;
 import com.shirtshop.util.OtpStore;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -32,9 +32,10 @@ public class AuthService {
 
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
     private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${app.jwt.access-expiration-ms:900000}")
     private long accessExpirationMs;
@@ -47,7 +48,7 @@ public class AuthService {
                 .orElseThrow(() -> new ApiException("INVALID_CREDENTIALS", "Email or password is incorrect."));
 
         String storedHash = user.getPasswordHash();
-        if (!StringUtils.hasText(storedHash) || !passwordEncoder.matches(req.getPassword(), storedHash)) {
+        if (!StringUtils.hasText(storedHash) || !passwordHasher.matches(req.getPassword(), storedHash)) {
             throw new ApiException("INVALID_CREDENTIALS", "Email or password is incorrect.");
         }
 
@@ -89,7 +90,7 @@ public class AuthService {
                 .firstName(req.getFirstName())
                 .lastName(req.getLastName())
                 .displayName(req.getDisplayName())
-                .passwordHash(passwordEncoder.encode(req.getPassword())) // ✅ ใช้ passwordHash
+                .passwordHash(passwordHasher.encode(req.getPassword())) // ✅ ใช้ passwordHash
                 .phone(req.getPhone())
                 .profileImageUrl(avatarUrl)
                 .emailVerified(false)
@@ -114,16 +115,14 @@ public class AuthService {
 
     /** ============ REFRESH TOKEN ============ */
     public AuthResponse refresh(String refreshToken) {
-        if (!StringUtils.hasText(refreshToken) || !jwtService.validateToken(refreshToken)) {
-            throw new ApiException("INVALID_TOKEN", "Refresh token is invalid or expired.");
-        }
+        // ตรวจด้วย refresh key + mark jti เดิมว่าใช้แล้ว (ใช้ซ้ำ = เพิกถอนทั้งสาย)
+        Claims old = refreshTokenService.rotate(refreshToken);
 
-        String userId = jwtService.extractUserId(refreshToken);
-        User user = userRepository.findById(userId)
+        User user = userRepository.findById(old.getSubject())
                 .orElseThrow(() -> new ApiException("USER_NOT_FOUND", "User not found."));
 
         String newAccessToken  = jwtService.generateToken(user);
-        String newRefreshToken = jwtService.generateRefreshToken(user);
+        String newRefreshToken = jwtService.generateRefreshToken(user, JwtService.familyOf(old));
 
         userService.markActiveById(user.getId());
 
@@ -136,6 +135,11 @@ public class AuthService {
                 .build();
     }
 
+    /** ============ LOGOUT ============ */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+
     /** ส่ง OTP: ตอบ 200 เสมอ เพื่อลด user-enumeration */
     public void sendPasswordOtp(String email) {
         Optional<User> maybe = userRepository.findByEmail(email);
@@ -164,7 +168,7 @@ public class AuthService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalArgumentException("Email not found"));
 
-        String encoded = passwordEncoder.encode(newPassword);
+        String encoded = passwordHasher.encode(newPassword);
         user.setPasswordHash(encoded); // ต้องมี field password + @Setter ใน User
         userRepository.save(user);
 
@@ -175,12 +179,12 @@ public class AuthService {
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
         // ตรวจรหัสเดิม
-        if (!passwordEncoder.matches(currentPassword, user.getPasswordHash())) {
+        if (!passwordHasher.matches(currentPassword, user.getPasswordHash())) {
             throw new IllegalArgumentException("Current password is incorrect");
         }
 
         // ตั้งรหัสใหม่ (เข้ารหัสก่อน)
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.setPasswordHash(passwordHasher.encode(newPassword));
         userRepository.save(user);
     }
 }
@@ -16,6 +16,8 @@ public class BrandingSettingsService {
 
     private final BrandingSettingsRepository repo;
     private final CloudinaryService cloudinaryService;
+    private final VersionStamps versionStamps;
+    private final ImageDeletionOutbox deletionOutbox;
 
     private static final String BRANDING_ID = "branding";
     private static final String BRANDING_FOLDER = "shirtshop/branding";
@@ -41,23 +43,21 @@ public class BrandingSettingsService {
             s.setSiteName(req.getSiteName().trim());
         }
 
+        // โลโก้เดิมที่ต้องลบ — ส่งเข้า outbox หลังบันทึกสำเร็จ
+        String oldLogoPublicId = null;
+
         if (Boolean.TRUE.equals(req.getRemoveLogo())) {
             if (s.getLogoPublicId() != null) {
-                try { cloudinaryService.deleteFile(s.getLogoPublicId()); } catch (Exception ex) {
-                    // log แล้วไปต่อ (อย่าทำให้ทั้ง flow พัง)
-                    System.err.println("[Branding] delete old logo failed: " + ex.getMessage());
-                }
+                oldLogoPublicId = s.getLogoPublicId();
             }
             s.setLogoPublicId(null);
             s.setLogoUrl(null);
         }
 
         if (logo != null && !logo.isEmpty()) {
-            // เคลียร์ของเดิม
+            // เคลียร์ของเดิม (ลบจริงหลังอัปโหลดใหม่และบันทึกสำเร็จ)
             if (s.getLogoPublicId() != null) {
-                try { cloudinaryService.deleteFile(s.getLogoPublicId()); } catch (Exception ex) {
-                    System.err.println("[Branding] delete old logo before upload failed: " + ex.getMessage());
-                }
+                oldLogoPublicId = s.getLogoPublicId();
             }
 
             try {
@@ -86,17 +86,37 @@ public class BrandingSettingsService {
         }
 
         repo.save(s);
+        deletionOutbox.enqueue(oldLogoPublicId);
+        versionStamps.bump(VersionStamps.BRANDING);
         return new BrandingResponse(s.getSiteName(), s.getLogoUrl());
     }
 
 
+    /** ใช้โลโก้ที่อัปโหลดตรงไป Cloudinary แล้ว; โลโก้เดิมส่งเข้า outbox ให้ลบ */
+    public BrandingResponse setLogo(String publicId, String url) {
+        BrandingSettings s = repo.findById(BRANDING_ID).orElseGet(() -> {
+            BrandingSettings d = new BrandingSettings();
+            d.setId(BRANDING_ID);
+            return d;
+        });
+        String old = s.getLogoPublicId();
+        if (!publicId.equals(old)) {
+            s.setLogoPublicId(publicId);
+            s.setLogoUrl(url);
+            repo.save(s);
+            deletionOutbox.enqueue(old);
+            versionStamps.bump(VersionStamps.BRANDING);
+        }
+        return new BrandingResponse(s.getSiteName(), s.getLogoUrl());
+    }
+
     public void deleteLogo() {
         BrandingSettings s = repo.findById(BRANDING_ID).orElseThrow();
-        if (s.getLogoPublicId() != null) {
-            try { cloudinaryService.deleteFile(s.getLogoPublicId()); } catch (Exception ignored) {}
-        }
+        String oldLogoPublicId = s.getLogoPublicId();
         s.setLogoPublicId(null);
         s.setLogoUrl(null);
         repo.save(s);
+        deletionOutbox.enqueue(oldLogoPublicId);
+        versionStamps.bump(VersionStamps.BRANDING);
     }
 }
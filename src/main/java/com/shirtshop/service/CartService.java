@@ -4,7 +4,9 @@ package com.shirtshop.service;
 import com.shirtshop.dto.cart.*;
 import com.shirtshop.entity.Cart;
 import com.shirtshop.entity.CartItem;
+import com.shirtshop.entity.ImageVariants;
 import com.shirtshop.entity.Product;
+import com.shirtshop.mapper.CartMapper;
 import com.shirtshop.repository.CartRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -20,6 +22,8 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final ProductService productService;
+    private final CartMapper cartMapper;
+    private final ImageVariantFactory imageVariantFactory;
 
     public Cart getOrCreate(String userId) {
         return cartRepository.findByUserId(userId)
@@ -36,7 +40,7 @@ public class CartService {
 
     public CartResponse getCart(String userId) {
         Cart cart = getOrCreate(userId);
-        return toResponse(cart);
+        return cartMapper.toResponse(cart);
     }
 
     public CartResponse addItem(String userId, AddCartItemRequest req) {
@@ -56,40 +60,38 @@ public class CartService {
 
         Cart cart = getOrCreate(userId);
 
-        // upsert
-        CartItem exist = cart.getItems().stream()
-                .filter(i -> i.getProductId().equals(req.getProductId())
-                        && equalsIgnoreCaseTrim(i.getColor(), req.getColor())
-                        && equalsIgnoreCaseTrim(i.getSize(), req.getSize()))
-                .findFirst().orElse(null);
-
         // price อาจเป็น Integer, Double, หรือ BigDecimal ก็ได้, แปลงให้เป็น int
         int unitPrice = (int) Math.round(p.getPrice().doubleValue());
         String imageUrl = (p.getImageUrls() != null && !p.getImageUrls().isEmpty()) ? p.getImageUrls().get(0) : "";
+        ImageVariants imageVariants = firstVariants(p, imageUrl);
+        Instant now = Instant.now();
+
+        // upsert (เขียนเฉพาะ item นั้นด้วย $push / $set items.$ ไม่ save ทั้งตะกร้า)
+        CartItem exist = findItem(cart, req.getProductId(), req.getColor(), req.getSize());
 
+        Cart updated;
         if (exist == null) {
             int qty = Math.min(req.getQuantity(), stock);
-            cart.getItems().add(CartItem.builder()
+            updated = cartRepository.pushItem(userId, CartItem.builder()
                     .productId(p.getId())
                     .color(req.getColor().trim())
                     .size(req.getSize().trim())
                     .quantity(qty)
                     .productName(p.getName()) // ใช้ productName แทน name
                     .imageUrl(imageUrl)
+                    .imageVariants(imageVariants)
                     .unitPrice(unitPrice)
-                    .build());
+                    .build(), now);
         } else {
-            int newQty = exist.getQuantity() + req.getQuantity();
-            exist.setQuantity(Math.min(newQty, stock));
+            int newQty = Math.min(exist.getQuantity() + req.getQuantity(), stock);
             // snapshot อัปเดตชื่อ/รูป/ราคาเผื่อสินค้ามีการแก้ไข
-            exist.setProductName(p.getName()); // ใช้ productName แทน name
-            exist.setImageUrl(imageUrl);
-            exist.setUnitPrice(unitPrice);
+            updated = cartRepository.updateItem(userId, exist, newQty, p.getName(), imageUrl, imageVariants, unitPrice, now);
         }
 
-        cart.setUpdatedAt(Instant.now()); // Fix: ใช้ Instant
-        cartRepository.save(cart);
-        return toResponse(cart);
+        if (updated == null) {
+            throw new IllegalStateException("Cart was modified concurrently, please retry");
+        }
+        return cartMapper.toResponse(updated);
     }
 
     public CartResponse updateItem(String userId, UpdateCartItemRequest req) {
@@ -105,35 +107,27 @@ public class CartService {
         if (stock <= 0) throw new IllegalArgumentException("Out of stock");
 
         Cart cart = getOrCreate(userId);
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProductId().equals(req.getProductId())
-                        && equalsIgnoreCaseTrim(i.getColor(), req.getColor())
-                        && equalsIgnoreCaseTrim(i.getSize(), req.getSize()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Item not found in cart"));
-
-        item.setQuantity(Math.min(req.getQuantity(), stock));
-        cart.setUpdatedAt(Instant.now()); // Fix: ใช้ Instant
-        cartRepository.save(cart);
-        return toResponse(cart);
+        CartItem item = findItem(cart, req.getProductId(), req.getColor(), req.getSize());
+        if (item == null) {
+            throw new IllegalArgumentException("Item not found in cart");
+        }
+
+        Cart updated = cartRepository.updateItemQuantity(userId, item, Math.min(req.getQuantity(), stock), Instant.now());
+        if (updated == null) {
+            throw new IllegalArgumentException("Item not found in cart");
+        }
+        return cartMapper.toResponse(updated);
     }
 
     public CartResponse removeItem(String userId, String productId, String color, String size) {
-        Cart cart = getOrCreate(userId);
-        cart.getItems().removeIf(i -> i.getProductId().equals(productId)
-                && equalsIgnoreCaseTrim(i.getColor(), color)
-                && equalsIgnoreCaseTrim(i.getSize(), size));
-        cart.setUpdatedAt(Instant.now()); // Fix: ใช้ Instant
-        cartRepository.save(cart);
-        return toResponse(cart);
+        // $pull ในคำสั่งเดียว; ถ้ายังไม่มีตะกร้าค่อยสร้าง (เหมือนเดิม)
+        Cart updated = cartRepository.pullItem(userId, productId, color, size, Instant.now());
+        return cartMapper.toResponse(updated != null ? updated : getOrCreate(userId));
     }
 
     public CartResponse clear(String userId) {
-        Cart cart = getOrCreate(userId);
-        cart.getItems().clear();
-        cart.setUpdatedAt(Instant.now()); // Fix: ใช้ Instant
-        cartRepository.save(cart);
-        return toResponse(cart);
+        Cart updated = cartRepository.clearItems(userId, Instant.now());
+        return cartMapper.toResponse(updated != null ? updated : getOrCreate(userId));
     }
 
     public CartResponse merge(String userId, MergeCartRequest req) {
@@ -146,6 +140,22 @@ public class CartService {
         return getCart(userId);
     }
 
+    /** ใช้ variants ที่สินค้าเก็บไว้แล้ว; สินค้าเก่าที่ยังไม่ backfill ค่อยสร้างจาก URL */
+    private ImageVariants firstVariants(Product p, String imageUrl) {
+        List<ImageVariants> stored = p.getImageVariants();
+        if (stored != null && !stored.isEmpty() && stored.get(0) != null) return stored.get(0);
+        return imageVariantFactory.of(imageUrl);
+    }
+
+    private static CartItem findItem(Cart cart, String productId, String color, String size) {
+        if (cart.getItems() == null) return null;
+        return cart.getItems().stream()
+                .filter(i -> i.getProductId().equals(productId)
+                        && equalsIgnoreCaseTrim(i.getColor(), color)
+                        && equalsIgnoreCaseTrim(i.getSize(), size))
+                .findFirst().orElse(null);
+    }
+
     private static boolean equalsIgnoreCaseTrim(String a, String b) {
         return (a == null && b == null) ||
                 (a != null && b != null && a.trim().equalsIgnoreCase(b.trim()));
@@ -157,28 +167,4 @@ public class CartService {
         if (!StringUtils.hasText(r.getSize())) throw new IllegalArgumentException("size required");
         if (r.getQuantity() <= 0) throw new IllegalArgumentException("quantity must be > 0");
     }
-
-    private CartResponse toResponse(Cart cart) {
-        if (cart.getItems() == null) { // ป้องกัน NullPointerException
-            cart.setItems(new ArrayList<>());
-        }
-        List<CartItemResponse> items = cart.getItems().stream().map(i ->
-                CartItemResponse.builder()
-                        .productId(i.getProductId())
-                        .name(i.getProductName()) // ใช้ productName
-                        .imageUrl(i.getImageUrl())
-                        .unitPrice(i.getUnitPrice())
-                        .color(i.getColor())
-                        .size(i.getSize())
-                        .quantity(i.getQuantity())
-                        .lineTotal(i.getUnitPrice() * i.getQuantity())
-                        .build()
-        ).toList();
-
-        double sub = items.stream().mapToDouble(CartItemResponse::getLineTotal).sum();
-        return CartResponse.builder()
-                .items(items)
-                .subTotal(sub)
-                .build();
-    }
 }
\ No newline at end of file
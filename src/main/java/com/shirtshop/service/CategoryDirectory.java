@@ -0,0 +1,83 @@
+package com.shirtshop.service;
+
+import com.shirtshop.dto.CategoryResponse;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * รายชื่อหมวด + จำนวนสินค้า (aggregate จาก products) เก็บไว้ในหน่วยความจำ
+ * - ProductService / InventoryService เรียก invalidate() เมื่อมีการเขียน → คำนวณใหม่ตอนอ่านครั้งถัดไป
+ * - มี TTL กันค่าค้างจากการแก้ไขบน instance อื่น
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryDirectory {
+
+    private static final String PRODUCTS_COLLECTION = "products";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.categories.cache-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile List<CategoryResponse> cached;
+    private volatile long expiresAt;
+
+    public List<CategoryResponse> list() {
+        List<CategoryResponse> c = cached;
+        if (c != null && System.currentTimeMillis() < expiresAt) return c;
+
+        synchronized (this) {
+            c = cached;
+            if (c != null && System.currentTimeMillis() < expiresAt) return c;
+
+            long v = version.get();
+            List<CategoryResponse> fresh = aggregate();
+            // มีการเขียนระหว่างคำนวณ → ใช้ผลนี้ตอบไปก่อนแต่ไม่เก็บ
+            if (version.get() == v) {
+                expiresAt = System.currentTimeMillis() + ttlSeconds * 1000L;
+                cached = fresh;
+                // invalidate() ไม่ได้ล็อก อาจแทรกระหว่างเช็คกับการเก็บ → เช็คซ้ำหลังเก็บ ถ้าเปลี่ยนให้ทิ้ง
+                if (version.get() != v) {
+                    cached = null;
+                }
+            }
+            return fresh;
+        }
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        cached = null;
+    }
+
+    private List<CategoryResponse> aggregate() {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("categoryKey", new Document("$type", "string"))),
+                new Document("$group", new Document("_id", "$categoryKey")
+                        .append("name", new Document("$first", "$category"))
+                        .append("productCount", new Document("$sum", 1))
+                        .append("inStockCount", new Document("$sum",
+                                new Document("$cond", List.of(new Document("$gt", List.of("$stockQuantity", 0)), 1, 0))))),
+                new Document("$sort", new Document("_id", 1))
+        );
+
+        List<CategoryResponse> out = new ArrayList<>();
+        for (Document d : mongoTemplate.getCollection(PRODUCTS_COLLECTION).aggregate(pipeline)) {
+            out.add(new CategoryResponse(
+                    d.getString("_id"),
+                    d.getString("name"),
+                    ((Number) d.get("productCount")).longValue(),
+                    ((Number) d.get("inStockCount")).longValue()));
+        }
+        return List.copyOf(out);
+    }
+}
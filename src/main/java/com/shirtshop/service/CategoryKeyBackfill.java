@@ -0,0 +1,64 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.Product;
+import com.shirtshop.util.CategoryKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Migration: เติม categoryKey ให้สินค้าที่สร้างก่อนมีฟิลด์นี้ (รันตอน start, ทำซ้ำได้ไม่มีผลข้างเคียง)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryKeyBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final CategoryDirectory categoryDirectory;
+    private final ProductCache productCache;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query q = new Query(new Criteria().andOperator(
+                Criteria.where("categoryKey").exists(false),
+                Criteria.where("category").type(2)));   // 2 = string
+        q.fields().include("category");
+
+        int pending = 0, total = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        try (Stream<Product> stream = mongoTemplate.stream(q, Product.class)) {
+            for (Product p : (Iterable<Product>) stream::iterator) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(p.getId())),
+                        Update.update("categoryKey", CategoryKeys.normalize(p.getCategory())));
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    total += pending;
+                    pending = 0;
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+            total += pending;
+        }
+
+        if (total > 0) {
+            productCache.clear();
+            categoryDirectory.invalidate();
+            log.info("[CategoryKeyBackfill] set categoryKey on {} products", total);
+        }
+    }
+}
@@ -4,22 +4,44 @@ import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import com.shirtshop.dto.CloudinaryUploadResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CloudinaryService {
 
     private final Cloudinary cloudinary;
+    private final ImageOptimizationStage imageOptimization;
 
+    @Value("${app.uploads.temp-dir:}")
+    private String tempDir;
+
+    /**
+     * อัปโหลดโดยไม่ก๊อปไฟล์ทั้งก้อนเข้า heap:
+     * ย้าย temp file ของ multipart มาไว้ใน upload temp dir (transferTo = rename ถ้าอยู่บนดิสก์แล้ว)
+     * → ปรับรูป (ถ้าเป็นรูป) → ส่งเป็น File ให้ HTTP client สตรีมทีละ chunk → ลบ temp ทิ้ง
+     */
     public CloudinaryUploadResponse uploadFile(MultipartFile file, String folderName) {
+        Path spooled = null;
+        Path toSend = null;
         try {
+            spooled = Files.createTempFile(uploadTempDir(), "up-", ".bin");
+            file.transferTo(spooled.toFile());
+
             // ⭐️ 1. ใช้วิธีใหม่ โดยการระบุ 'folder' โดยตรง
-            Map<?, ?> uploadResult = cloudinary.uploader().upload(file.getBytes(), ObjectUtils.asMap(
+            // ย่อ/ตัด metadata/บีบอัดตามโปรไฟล์ของโฟลเดอร์ก่อนส่ง (ไม่ใช่รูป → ส่งไฟล์เดิม)
+            toSend = imageOptimization.process(spooled, folderName);
+            Map<?, ?> uploadResult = cloudinary.uploader().upload(toSend.toFile(), ObjectUtils.asMap(
                     "folder", folderName,          // บอก Cloudinary ว่าให้อัปโหลดลงโฟลเดอร์นี้
                     "use_filename", false,         // ไม่ใช้ชื่อไฟล์เดิม
                     "unique_filename", true,       // ให้ Cloudinary ตั้งชื่อไฟล์แบบสุ่มให้เอง (ไม่ต้องใช้ UUID แล้ว)
@@ -33,6 +55,25 @@ public class CloudinaryService {
 
         } catch (IOException e) {
             throw new RuntimeException("Could not upload file to Cloudinary", e);
+        } finally {
+            deleteQuietly(toSend);
+            deleteQuietly(spooled);
+        }
+    }
+
+    private Path uploadTempDir() throws IOException {
+        Path dir = (tempDir == null || tempDir.isBlank())
+                ? Path.of(System.getProperty("java.io.tmpdir"), "shirtshop-uploads")
+                : Path.of(tempDir);
+        return Files.createDirectories(dir);
+    }
+
+    private static void deleteQuietly(Path p) {
+        if (p == null) return;
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+            // temp dir จะถูกล้างตอน restart container อยู่แล้ว
         }
     }
 
@@ -43,4 +84,24 @@ public class CloudinaryService {
             throw new RuntimeException("Could not delete file from Cloudinary", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * ลบหลายรูปในคำขอเดียว (Admin API delete_resources, สูงสุด 100 รูปต่อครั้ง)
+     * @return publicId ที่ลบแล้วหรือไม่มีอยู่แล้ว (ที่เหลือควรลองใหม่)
+     */
+    public Set<String> deleteFiles(Collection<String> publicIds) {
+        Set<String> done = new HashSet<>();
+        if (publicIds == null || publicIds.isEmpty()) return done;
+        try {
+            Map<?, ?> result = cloudinary.api().deleteResources(publicIds, ObjectUtils.emptyMap());
+            if (result.get("deleted") instanceof Map<?, ?> deleted) {
+                deleted.forEach((id, status) -> {
+                    if ("deleted".equals(status) || "not_found".equals(status)) done.add(String.valueOf(id));
+                });
+            }
+            return done;
+        } catch (Exception e) {
+            throw new RuntimeException("Could not delete files from Cloudinary", e);
+        }
+    }
+}
@@ -9,39 +9,49 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerAdminService {
 
     private final UserRepository userRepository;
+    private final UserSnapshotCache userSnapshotCache;
+    private final ActiveUserWindow activeUserWindow;
 
     /** ✅ สำหรับ Dashboard: รวมจำนวนลูกค้าทั้งหมด */
     public long countAll() {
         return userRepository.count();
     }
 
-    /** ✅ สำหรับ Dashboard: จำนวนลูกค้าที่ active (ถ้ามีฟิลด์ active) */
+    /** ✅ สำหรับ Dashboard: จำนวนลูกค้าที่ active ใน window-minutes นาทีล่าสุด */
     public long countActive() {
-        // ถ้าใน UserRepository มีเมธอดนี้อยู่แล้ว ใช้งานบรรทัดล่างได้เลย:
-        // return userRepository.countByActiveTrue();
+        return countActive(activeUserWindow.getWindowMinutes());
+    }
 
-        // Fallback (ถ้ายังไม่มีเมธอดบน repository):
-        return userRepository.findAll().stream()
-                .filter(u -> Boolean.TRUE.equals(u.isActive()))
-                .count();
+    /**
+     * จำนวนลูกค้าที่ active ใน N นาทีล่าสุด
+     * อ่านจากตัวนับในหน่วยความจำ (O(1)); ถ้ายังไม่พร้อม fallback ไป count บน index lastActive
+     */
+    public long countActive(int minutes) {
+        OptionalLong inMemory = activeUserWindow.count(minutes);
+        if (inMemory.isPresent()) {
+            return inMemory.getAsLong();
+        }
+        return userRepository.countByLastActiveGreaterThanEqual(
+                Instant.now().minus(Math.max(1, minutes), ChronoUnit.MINUTES));
     }
 
-    /** ดึงลูกค้าทั้งหมด (สำหรับตารางรายชื่อ) */
-    public List<CustomerItemResponse> getAllCustomers() {
-        return userRepository.findAll()
-                .stream()
-                .map(this::toCustomerItem)
-                .collect(Collectors.toList());
+    /** ดึงลูกค้าทั้งหมด (สำหรับตารางรายชื่อ) แบบ cursor — ผู้เรียกต้องปิด Stream (JsonArrayStreamer ปิดให้) */
+    public Stream<CustomerItemResponse> streamAllCustomers() {
+        return userRepository.streamCustomerRows().map(this::toCustomerItem);
     }
 
     /** ดู Profile รายบุคคลแบบย่อ (ถ้าหน้าอื่นต้องการ) */
@@ -79,6 +89,7 @@ public class CustomerAdminService {
             throw new IllegalArgumentException("Customer not found");
         }
         userRepository.deleteById(id);
+        userSnapshotCache.invalidate(id); // token ที่ยังไม่หมดอายุต้องใช้ไม่ได้ทันที
     }
 
     /* -------------------- Mapper helpers -------------------- */
@@ -0,0 +1,237 @@
+package com.shirtshop.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.shirtshop.config.ImageOptimizationProperties;
+import com.shirtshop.dto.DirectUploadFinalizeRequest;
+import com.shirtshop.dto.DirectUploadParams;
+import com.shirtshop.dto.DirectUploadResult;
+import com.shirtshop.exception.ApiException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * อัปโหลดรูปตรงจาก client ไป Cloudinary (ไบต์ไม่ผ่าน JVM ของเรา)
+ * 1) sign(): ออก signed params อายุสั้น ผูกกับ folder + public_id สุ่ม + จำกัดขนาดภาพ (incoming transformation)
+ *    พร้อม ticket (HMAC) ที่ผูก purpose/ผู้ใช้/เป้าหมาย/public_id/เวลาหมดอายุ
+ *    และจองลบ public_id นั้นไว้ใน outbox (client อัปแล้วไม่ finalize → รูปไม่ค้างบน Cloudinary)
+ * 2) finalize(): ตรวจ ticket + ลายเซ็น response ของ Cloudinary + ขนาดไฟล์จริง (Admin API)
+ *    แล้วยกเลิกงานลบที่จองไว้ + บันทึกลง order/user/product/branding; ไม่ผ่าน → ส่งรูปเข้า outbox ให้ลบทิ้ง
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+
+    public enum Purpose {
+        SLIP("shirtshop/slips", false, true),
+        AVATAR("shirtshop/avatars", false, false),
+        PRODUCT("products", true, true),
+        BRANDING("shirtshop/branding", true, false);
+
+        final String folder;
+        final boolean adminOnly;
+        final boolean needsTarget;
+
+        Purpose(String folder, boolean adminOnly, boolean needsTarget) {
+            this.folder = folder;
+            this.adminOnly = adminOnly;
+            this.needsTarget = needsTarget;
+        }
+
+        static Purpose parse(String s) {
+            try {
+                return Purpose.valueOf(s == null ? "" : s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException("INVALID_PURPOSE", "purpose must be one of " + Arrays.toString(values()));
+            }
+        }
+    }
+
+    private static final String ALLOWED_FORMATS = "jpg,jpeg,png,webp,heic";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Cloudinary cloudinary;
+    private final ImageOptimizationProperties imageProps;
+    private final ImageDeletionOutbox deletionOutbox;
+    private final OrderService orderService;
+    private final UserService userService;
+    private final ProductService productService;
+    private final BrandingSettingsService brandingSettingsService;
+
+    @Value("${app.uploads.direct.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    /** Cloudinary รับลายเซ็นได้ถึง 1 ชม. นับจาก timestamp → รอให้เลยช่วงนั้นก่อนลบรูปที่ไม่ได้ finalize */
+    @Value("${app.uploads.direct.cleanup-after-seconds:3900}")
+    private long cleanupAfterSeconds;
+
+    @Value("${app.uploads.direct.max-bytes.slip:10485760}")
+    private long maxSlipBytes;
+
+    @Value("${app.uploads.direct.max-bytes.avatar:2097152}")
+    private long maxAvatarBytes;
+
+    @Value("${app.uploads.direct.max-bytes.product:10485760}")
+    private long maxProductBytes;
+
+    @Value("${app.uploads.direct.max-bytes.branding:2097152}")
+    private long maxBrandingBytes;
+
+    public DirectUploadParams sign(String purposeName, String targetId, String userId, boolean admin) {
+        Purpose purpose = Purpose.parse(purposeName);
+        authorize(purpose, admin);
+        String target = purpose.needsTarget ? requireTarget(targetId) : null;
+
+        // ตรวจเป้าหมายตั้งแต่ตอนออก params จะได้ไม่มีใครอัปโหลดรูปทิ้งไว้ให้ order/product ที่ไม่มีสิทธิ์
+        switch (purpose) {
+            case SLIP -> orderService.assertSlipUploadable(target, userId);
+            case PRODUCT -> productService.getById(target);
+            default -> { }
+        }
+
+        long now = Instant.now().getEpochSecond();
+        Instant expiresAt = Instant.ofEpochSecond(now + Math.max(60, ttlSeconds));
+        String publicId = purpose.folder + "/" + randomToken();
+        int maxDim = imageProps.profileFor(purpose.folder).getMaxDimension();
+
+        // ระบุ public_id เต็ม (รวม folder) → client เปลี่ยนปลายทางไม่ได้เพราะอยู่ในลายเซ็น
+        Map<String, Object> signed = new TreeMap<>();
+        signed.put("timestamp", now);
+        signed.put("public_id", publicId);
+        signed.put("allowed_formats", ALLOWED_FORMATS);
+        signed.put("transformation", "c_limit,w_" + maxDim + ",h_" + maxDim);
+        signed.put("overwrite", "false");
+
+        Map<String, Object> fields = new LinkedHashMap<>(signed);
+        fields.put("api_key", cloudinary.config.apiKey);
+        fields.put("signature", cloudinary.apiSignRequest(signed, cloudinary.config.apiSecret));
+
+        String uploadUrl = "https://api.cloudinary.com/v1_1/" + cloudinary.config.cloudName + "/image/upload";
+        String ticket = issueTicket(purpose, userId, target, publicId, expiresAt.getEpochSecond());
+        Instant cleanupAt = Instant.ofEpochSecond(now + Math.max(cleanupAfterSeconds, ttlSeconds));
+        deletionOutbox.schedule(publicId, cleanupAt);
+        return new DirectUploadParams(uploadUrl, fields, ticket, maxBytes(purpose), expiresAt);
+    }
+
+    public DirectUploadResult finalize(DirectUploadFinalizeRequest req, String userId, boolean admin) {
+        Ticket t = parseTicket(req.getTicket());
+        if (Instant.now().getEpochSecond() > t.expiresAt) {
+            throw new ApiException("UPLOAD_TICKET_EXPIRED", "Upload ticket expired, please request a new one.");
+        }
+        if (!Objects.equals(t.userId, userId)) {
+            throw new ApiException("UPLOAD_TICKET_INVALID", "Upload ticket was issued to another user.");
+        }
+        authorize(t.purpose, admin);
+        if (!t.publicId.equals(req.getPublicId())) {
+            throw new ApiException("UPLOAD_TICKET_INVALID", "public_id does not match the upload ticket.");
+        }
+        if (!cloudinary.verifyApiResponseSignature(req.getPublicId(), req.getVersion(), req.getSignature())) {
+            throw new ApiException("UPLOAD_SIGNATURE_INVALID", "Cloudinary response signature is invalid.");
+        }
+
+        Map<?, ?> resource;
+        try {
+            resource = cloudinary.api().resource(t.publicId, ObjectUtils.emptyMap());
+        } catch (Exception e) {
+            throw new ApiException("UPLOAD_NOT_FOUND", "Uploaded image was not found on Cloudinary.");
+        }
+        long bytes = resource.get("bytes") instanceof Number n ? n.longValue() : 0L;
+        String url = String.valueOf(resource.get("secure_url"));
+        if (bytes > maxBytes(t.purpose)) {
+            deletionOutbox.enqueue(t.publicId);
+            throw new ApiException("FILE_TOO_LARGE", "Image exceeds " + maxBytes(t.purpose) + " bytes.");
+        }
+
+        // ยกเลิกก่อนบันทึก: ถ้ายกเลิกไม่สำเร็จ request ล้มแล้ว finalize ใหม่ได้ (ไม่มีทางลบรูปที่ถูกอ้างแล้ว)
+        deletionOutbox.cancel(t.publicId);
+        try {
+            switch (t.purpose) {
+                case SLIP -> orderService.attachSlip(t.targetId, userId, url);
+                case AVATAR -> userService.setProfileImage(userId, url, t.publicId);
+                case PRODUCT -> productService.appendImage(t.targetId, t.publicId, url);
+                case BRANDING -> brandingSettingsService.setLogo(t.publicId, url);
+            }
+        } catch (RuntimeException e) {
+            // บันทึกไม่ได้ → รูปนี้ไม่มีใครอ้าง ลบทิ้ง
+            deletionOutbox.enqueue(t.publicId);
+            throw e;
+        }
+        return new DirectUploadResult(t.purpose.name(), t.targetId, t.publicId, url, bytes);
+    }
+
+    /* ---------- internals ---------- */
+
+    private static void authorize(Purpose purpose, boolean admin) {
+        if (purpose.adminOnly && !admin) {
+            throw new AccessDeniedException("Admin role required for " + purpose.name() + " uploads.");
+        }
+    }
+
+    private static String requireTarget(String targetId) {
+        if (targetId == null || !targetId.matches("[a-f0-9]{24}")) {
+            throw new ApiException("INVALID_TARGET", "targetId must be a valid id.");
+        }
+        return targetId;
+    }
+
+    private long maxBytes(Purpose p) {
+        return switch (p) {
+            case SLIP -> maxSlipBytes;
+            case AVATAR -> maxAvatarBytes;
+            case PRODUCT -> maxProductBytes;
+            case BRANDING -> maxBrandingBytes;
+        };
+    }
+
+    private static String randomToken() {
+        byte[] b = new byte[16];
+        RANDOM.nextBytes(b);
+        return HexFormat.of().formatHex(b);
+    }
+
+    private record Ticket(Purpose purpose, String userId, String targetId, String publicId, long expiresAt) {}
+
+    /** ticket = base64url(purpose|userId|targetId|publicId|exp) + "." + base64url(HMAC-SHA256) */
+    private String issueTicket(Purpose purpose, String userId, String targetId, String publicId, long exp) {
+        String payload = String.join("|", purpose.name(), userId, targetId == null ? "" : targetId,
+                publicId, Long.toString(exp));
+        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        return enc.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + enc.encodeToString(mac(payload));
+    }
+
+    private Ticket parseTicket(String ticket) {
+        try {
+            int dot = ticket.indexOf('.');
+            String payload = new String(Base64.getUrlDecoder().decode(ticket.substring(0, dot)), StandardCharsets.UTF_8);
+            byte[] sig = Base64.getUrlDecoder().decode(ticket.substring(dot + 1));
+            if (!MessageDigest.isEqual(sig, mac(payload))) throw new IllegalArgumentException("bad mac");
+            String[] p = payload.split("\\|", -1);
+            return new Ticket(Purpose.valueOf(p[0]), p[1], p[2].isEmpty() ? null : p[2], p[3], Long.parseLong(p[4]));
+        } catch (RuntimeException e) {
+            throw new ApiException("UPLOAD_TICKET_INVALID", "Upload ticket is invalid.");
+        }
+    }
+
+    private byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(
+                    ("direct-upload:" + cloudinary.config.apiSecret).getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.ImageDeletion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbox สำหรับลบรูปบน Cloudinary นอก request
+ * - enqueue() เขียนงานลง image_delete_outbox ทันทีหลังบันทึกเอกสารที่เลิกอ้างรูป (ไม่มี transaction manager
+ *   จึงเรียงลำดับแบบนี้: ถ้าพังกลางทาง อย่างมากได้รูปกำพร้า ไม่มีทางลบรูปที่ยังถูกใช้)
+ * - drain() หยิบงานที่ถึงเวลาทีละ batch (findAndModify เลื่อน nextAttemptAt = lease) แล้วลบด้วย bulk API
+ * - ล้ม → retry แบบ exponential backoff; เกิน max-attempts → ตั้ง deadAt แล้วเลิกลอง
+ * - schedule()/cancel(): จองลบรูปล่วงหน้า (รูปที่ออกลายเซ็นอัปโหลดตรงแล้ว แต่ยังไม่ finalize) ยกเลิกได้ถ้าถูกใช้จริง
+ * - metric: images.delete.outbox.depth (ค้างอยู่), .dead, images.delete.outbox.deleted / .failed
+ */
+@Slf4j
+@Service
+public class ImageDeletionOutbox {
+
+    /** Cloudinary delete_resources รับได้สูงสุด 100 publicId ต่อครั้ง */
+    private static final int CLOUDINARY_BULK_LIMIT = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final CloudinaryService cloudinaryService;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final Counter deleted;
+    private final Counter failed;
+
+    @Value("${app.images.delete-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.images.delete-outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.images.delete-outbox.base-backoff-ms:5000}")
+    private long baseBackoffMs;
+
+    @Value("${app.images.delete-outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.images.delete-outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    public ImageDeletionOutbox(MongoTemplate mongoTemplate, CloudinaryService cloudinaryService, MeterRegistry registry) {
+        this.mongoTemplate = mongoTemplate;
+        this.cloudinaryService = cloudinaryService;
+        registry.gauge("images.delete.outbox.depth", depth);
+        registry.gauge("images.delete.outbox.dead", dead);
+        this.deleted = registry.counter("images.delete.outbox.deleted");
+        this.failed = registry.counter("images.delete.outbox.failed");
+    }
+
+    @PostConstruct
+    void ensureIndexes() {
+        mongoTemplate.indexOps(ImageDeletion.class).ensureIndex(
+                new Index().on("deadAt", Sort.Direction.ASC).on("nextAttemptAt", Sort.Direction.ASC)
+                        .named("deadAt_1_nextAttemptAt_1"));
+        mongoTemplate.indexOps(ImageDeletion.class).ensureIndex(
+                new Index().on("publicId", Sort.Direction.ASC).named("publicId_1"));
+    }
+
+    /** บันทึกงานลบรูป (ข้ามค่า null/ว่าง) — เรียกหลังเอกสารที่เลิกอ้างรูปถูกบันทึกแล้ว */
+    public void enqueue(Collection<String> publicIds) {
+        if (publicIds == null || publicIds.isEmpty()) return;
+        Instant now = Instant.now();
+        List<ImageDeletion> docs = new ArrayList<>(publicIds.size());
+        for (String pid : new LinkedHashSet<>(publicIds)) {
+            if (pid == null || pid.isBlank()) continue;
+            docs.add(ImageDeletion.builder()
+                    .publicId(pid)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .build());
+        }
+        if (docs.isEmpty()) return;
+        mongoTemplate.insertAll(docs);
+        depth.addAndGet(docs.size());
+    }
+
+    public void enqueue(String publicId) {
+        if (publicId != null) enqueue(List.of(publicId));
+    }
+
+    /** จองลบรูปเมื่อถึง notBefore — ถ้ารูปถูกนำไปใช้ก่อนหน้านั้นให้เรียก cancel() */
+    public void schedule(String publicId, Instant notBefore) {
+        if (publicId == null || publicId.isBlank()) return;
+        mongoTemplate.insert(ImageDeletion.builder()
+                .publicId(publicId)
+                .nextAttemptAt(notBefore)
+                .createdAt(Instant.now())
+                .build());
+        depth.incrementAndGet();
+    }
+
+    /** ยกเลิกงานลบที่ยังไม่เสร็จของรูปนี้ (รูปกลับมาถูกอ้างแล้ว) */
+    public void cancel(String publicId) {
+        if (publicId == null) return;
+        long n = mongoTemplate.remove(Query.query(Criteria.where("publicId").is(publicId).and("deadAt").is(null)),
+                ImageDeletion.class).getDeletedCount();
+        if (n > 0) depth.addAndGet(-n);
+    }
+
+    @Scheduled(initialDelayString = "${app.images.delete-outbox.initial-delay-ms:10000}",
+            fixedDelayString = "${app.images.delete-outbox.poll-interval-ms:5000}")
+    public void drain() {
+        try {
+            List<ImageDeletion> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) process(batch);
+            } while (batch.size() >= Math.max(1, batchSize));
+        } catch (Exception e) {
+            log.warn("[ImageOutbox] drain failed: {}", e.getMessage());
+        } finally {
+            refreshGauges();
+        }
+    }
+
+    /* ---------- internals ---------- */
+
+    /** จองงานที่ถึงเวลาทีละรายการด้วย findAndModify (ปลอดภัยเมื่อรันหลาย instance) */
+    private List<ImageDeletion> claim() {
+        int limit = Math.min(Math.max(1, batchSize), CLOUDINARY_BULK_LIMIT);
+        Instant now = Instant.now();
+        Query q = Query.query(Criteria.where("deadAt").is(null).and("nextAttemptAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"));
+        Update lease = new Update().set("nextAttemptAt", now.plusMillis(Math.max(1000, leaseMs)));
+
+        List<ImageDeletion> out = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            ImageDeletion d = mongoTemplate.findAndModify(q, lease, FindAndModifyOptions.options().returnNew(true), ImageDeletion.class);
+            if (d == null) break;
+            out.add(d);
+        }
+        return out;
+    }
+
+    private void process(List<ImageDeletion> batch) {
+        List<String> publicIds = batch.stream().map(ImageDeletion::getPublicId).distinct().toList();
+        Set<String> done;
+        String error = null;
+        try {
+            done = cloudinaryService.deleteFiles(publicIds);
+        } catch (RuntimeException e) {
+            done = Set.of();
+            error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+
+        List<String> doneIds = new ArrayList<>();
+        for (ImageDeletion d : batch) {
+            if (done.contains(d.getPublicId())) {
+                doneIds.add(d.getId());
+            } else {
+                retryLater(d, error != null ? error : "not deleted by Cloudinary");
+            }
+        }
+        if (!doneIds.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(doneIds)), ImageDeletion.class);
+            deleted.increment(doneIds.size());
+        }
+    }
+
+    private void retryLater(ImageDeletion d, String error) {
+        failed.increment();
+        int attempts = d.getAttempts() + 1;
+        Update u = new Update().set("attempts", attempts).set("lastError", error);
+        if (attempts >= maxAttempts) {
+            u.set("deadAt", Instant.now());
+            log.error("[ImageOutbox] giving up on {} after {} attempts: {}", d.getPublicId(), attempts, error);
+        } else {
+            u.set("nextAttemptAt", Instant.now().plus(backoff(attempts)));
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(d.getId())), u, ImageDeletion.class);
+    }
+
+    /** base × 2^(attempts-1) พร้อม jitter ±20% ไม่เกิน max */
+    private Duration backoff(int attempts) {
+        long exp = baseBackoffMs << Math.min(20, attempts - 1);
+        long capped = Math.min(Math.max(baseBackoffMs, exp), maxBackoffMs);
+        long jitter = (long) (capped * 0.2 * (Math.random() * 2 - 1));
+        return Duration.ofMillis(Math.max(1000, capped + jitter));
+    }
+
+    private void refreshGauges() {
+        try {
+            depth.set(mongoTemplate.count(Query.query(Criteria.where("deadAt").is(null)), ImageDeletion.class));
+            dead.set(mongoTemplate.count(Query.query(Criteria.where("deadAt").ne(null)), ImageDeletion.class));
+        } catch (Exception e) {
+            log.debug("[ImageOutbox] gauge refresh failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.shirtshop.service;
+
+import com.shirtshop.config.ImageOptimizationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * ImageOptimizer ที่ใช้ ImageIO ของ JDK (ไม่ต้องมี native lib)
+ * - อ่านด้วย subsampling ให้ใกล้ขนาดเป้าก่อน → ไม่ต้อง decode ภาพ 12MP เต็ม ๆ เข้า heap
+ * - หมุนตาม EXIF orientation แล้วเข้ารหัสใหม่ (ImageIO ไม่เขียน metadata เดิมกลับ = ตัด EXIF/GPS ทิ้ง)
+ * - รูปมี alpha → PNG, นอกนั้น → JPEG ตาม quality ของโปรไฟล์
+ */
+@Component
+public class ImageIoOptimizer implements ImageOptimizer {
+
+    private static final int EXIF_HEADER_BYTES = 64 * 1024 + 4;
+
+    @Override
+    public Result optimize(Path input, Path output, ImageOptimizationProperties.Profile profile) throws IOException {
+        int maxDim = Math.max(1, profile.getMaxDimension());
+        int orientation = ExifOrientation.read(readHeader(input));
+
+        BufferedImage src;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(input.toFile())) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null; // ไม่ใช่รูปที่ ImageIO รู้จัก (เช่น HEIC) → ส่งไฟล์เดิม
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, false, true);
+                if (reader.getNumImages(true) > 1) return null; // GIF เคลื่อนไหว → ไม่แตะ
+                int w = reader.getWidth(0), h = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(w, h) / maxDim);
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                src = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage scaled = scale(src, maxDim);
+        BufferedImage oriented = orient(scaled, orientation);
+        boolean alpha = oriented.getColorModel().hasAlpha();
+        if (alpha) encodePng(oriented, output);
+        else encodeJpeg(oriented, profile.getQuality(), output);
+        return new Result(alpha ? "png" : "jpeg");
+    }
+
+    /** EXIF อยู่ใน APP1 ต้นไฟล์ (ไม่เกิน 64KB) → อ่านแค่ส่วนหัว */
+    private static byte[] readHeader(Path input) throws IOException {
+        try (InputStream in = Files.newInputStream(input)) {
+            return in.readNBytes(EXIF_HEADER_BYTES);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage src, int maxDim) {
+        int w = src.getWidth(), h = src.getHeight();
+        boolean alpha = src.getColorModel().hasAlpha();
+        double ratio = Math.min(1.0, (double) maxDim / Math.max(w, h));
+        int tw = Math.max(1, (int) Math.round(w * ratio));
+        int th = Math.max(1, (int) Math.round(h * ratio));
+        // วาดลง RGB/ARGB เสมอ: แก้ CMYK/indexed และให้ JPEG writer รับได้
+        BufferedImage dst = new BufferedImage(tw, th, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, tw, th);
+            }
+            g.drawImage(src, 0, 0, tw, th, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /** orientation 3/6/8 = หมุน 180/90/270 องศา (แบบกลับด้านพบน้อยมาก ไม่รองรับ) */
+    private static BufferedImage orient(BufferedImage img, int orientation) {
+        int quarter = switch (orientation) {
+            case 3 -> 2;
+            case 6 -> 1;
+            case 8 -> 3;
+            default -> 0;
+        };
+        if (quarter == 0) return img;
+        int w = img.getWidth(), h = img.getHeight();
+        boolean swap = quarter % 2 == 1;
+        BufferedImage dst = new BufferedImage(swap ? h : w, swap ? w : h, img.getType());
+        AffineTransform t = new AffineTransform();
+        t.translate(dst.getWidth() / 2.0, dst.getHeight() / 2.0);
+        t.quadrantRotate(quarter);
+        t.translate(-w / 2.0, -h / 2.0);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.drawImage(img, t, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    private static void encodeJpeg(BufferedImage img, float quality, Path output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Files.deleteIfExists(output);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(ios);
+            ImageWriteParam p = writer.getDefaultWriteParam();
+            p.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            p.setCompressionQuality(Math.min(1f, Math.max(0.1f, quality)));
+            if (p.canWriteProgressive()) p.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(img, null, null), p);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void encodePng(BufferedImage img, Path output) throws IOException {
+        Files.deleteIfExists(output);
+        if (!ImageIO.write(img, "png", output.toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /** อ่านค่า Orientation (0x0112) จาก APP1/Exif ของ JPEG แบบไม่ต้องใช้ไลบรารี */
+    static final class ExifOrientation {
+        private ExifOrientation() {}
+
+        static int read(byte[] b) {
+            try {
+                if (b.length < 4 || (b[0] & 0xFF) != 0xFF || (b[1] & 0xFF) != 0xD8) return 1;
+                int i = 2;
+                while (i + 4 <= b.length && (b[i] & 0xFF) == 0xFF) {
+                    int marker = b[i + 1] & 0xFF;
+                    int len = ((b[i + 2] & 0xFF) << 8) | (b[i + 3] & 0xFF);
+                    if (marker == 0xDA) break; // เริ่มข้อมูลภาพแล้ว
+                    if (marker == 0xE1 && len >= 8 && i + 10 <= b.length
+                            && b[i + 4] == 'E' && b[i + 5] == 'x' && b[i + 6] == 'i' && b[i + 7] == 'f') {
+                        return fromTiff(b, i + 10, Math.min(b.length, i + 2 + len));
+                    }
+                    i += 2 + len;
+                }
+            } catch (RuntimeException ignored) {
+                // EXIF เสีย → ถือว่าไม่หมุน
+            }
+            return 1;
+        }
+
+        private static int fromTiff(byte[] b, int start, int end) {
+            boolean le = b[start] == 'I';
+            int ifd = start + u32(b, start + 4, le);
+            int entries = u16(b, ifd, le);
+            for (int e = 0; e < entries; e++) {
+                int p = ifd + 2 + e * 12;
+                if (p + 12 > end) break;
+                if (u16(b, p, le) == 0x0112) return u16(b, p + 8, le);
+            }
+            return 1;
+        }
+
+        private static int u16(byte[] b, int p, boolean le) {
+            return le ? (b[p] & 0xFF) | (b[p + 1] & 0xFF) << 8 : (b[p] & 0xFF) << 8 | (b[p + 1] & 0xFF);
+        }
+
+        private static int u32(byte[] b, int p, boolean le) {
+            return le ? u16(b, p, true) | u16(b, p + 2, true) << 16 : u16(b, p, false) << 16 | u16(b, p + 2, false);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.shirtshop.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * ตัด metadata ออกแบบ lossless (ไม่ decode/เข้ารหัสภาพใหม่) สำหรับทางสำรองของ ImageOptimizationStage
+ * - JPEG: ทิ้ง APP1 (EXIF/XMP), APP13 (IPTC), COM; คง ICC/JFIF/Adobe และเขียน Orientation กลับเป็น APP1 เล็ก ๆ ถ้ารูปหมุนอยู่
+ * - PNG: ทิ้ง chunk eXIf/tEXt/zTXt/iTXt/tIME
+ * อ่าน/เขียนแบบสตรีม ไม่ถือไฟล์ทั้งก้อนไว้ใน heap
+ */
+final class ImageMetadataStripper {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final Set<String> PNG_DROP = Set.of("eXIf", "tEXt", "zTXt", "iTXt", "tIME");
+    private static final int EXIF_HEADER_BYTES = 64 * 1024 + 4;
+
+    private ImageMetadataStripper() {}
+
+    /** โครงสร้าง JPEG/PNG เดินต่อไม่ได้ (ตัดกลางทาง/marker เสีย) — แยกจาก IOException ของดิสก์ */
+    static final class MalformedImageException extends IOException {
+        MalformedImageException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * เขียนไฟล์ที่ตัด metadata แล้วลง output
+     * @return false ถ้าไม่ใช่ JPEG/PNG หรือไม่มีอะไรให้ตัด (ใช้ไฟล์เดิม; output ไม่มีความหมาย)
+     * @throws MalformedImageException ถ้าเป็น JPEG/PNG ที่อ่านโครงสร้างไม่ได้
+     */
+    static boolean strip(Path input, Path output) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(input)) {
+            head = in.readNBytes(EXIF_HEADER_BYTES);
+        }
+        boolean jpeg = head.length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8;
+        boolean png = head.length >= 8 && startsWith(head, PNG_SIGNATURE);
+        if (!jpeg && !png) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            return jpeg
+                    ? stripJpeg(in, out, ImageIoOptimizer.ExifOrientation.read(head))
+                    : stripPng(in, out);
+        } catch (EOFException e) {
+            throw new MalformedImageException("Truncated " + (jpeg ? "JPEG" : "PNG"));
+        }
+    }
+
+    private static boolean stripJpeg(DataInputStream in, DataOutputStream out, int orientation) throws IOException {
+        in.skipNBytes(2);
+        out.writeShort(0xFFD8);
+        boolean dropped = false;
+        boolean orientationWritten = orientation == 1;
+        while (true) {
+            int b = in.readUnsignedByte();
+            if (b != 0xFF) throw new MalformedImageException("Malformed JPEG marker");
+            int marker;
+            do {
+                marker = in.readUnsignedByte();
+            } while (marker == 0xFF); // fill bytes
+
+            // JFIF ต้องอยู่ต่อจาก SOI → ใส่ Orientation หลัง APP0
+            if (!orientationWritten && marker != 0xE0) {
+                writeOrientation(out, orientation);
+                orientationWritten = true;
+            }
+            if (marker == 0xD9 || marker == 0xDA) { // EOI / เริ่มข้อมูลภาพ → ที่เหลือคัดลอกตรง
+                out.writeByte(0xFF);
+                out.writeByte(marker);
+                in.transferTo(out);
+                return dropped;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) { // marker ไม่มีความยาว
+                out.writeByte(0xFF);
+                out.writeByte(marker);
+                continue;
+            }
+
+            int len = in.readUnsignedShort();
+            if (len < 2) throw new MalformedImageException("Malformed JPEG segment");
+            if (marker == 0xE1 || marker == 0xED || marker == 0xFE) {
+                in.skipNBytes(len - 2);
+                dropped = true;
+                continue;
+            }
+            out.writeByte(0xFF);
+            out.writeByte(marker);
+            out.writeShort(len);
+            copy(in, out, len - 2);
+        }
+    }
+
+    /** APP1 Exif ที่มีแค่ tag Orientation (big-endian TIFF, IFD0 หนึ่ง entry) */
+    private static void writeOrientation(DataOutputStream out, int orientation) throws IOException {
+        out.writeShort(0xFFE1);
+        out.writeShort(2 + 6 + 8 + 2 + 12 + 4);
+        out.write("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        out.write(new byte[]{'M', 'M', 0, 42});
+        out.writeInt(8);           // offset ของ IFD0
+        out.writeShort(1);         // จำนวน entry
+        out.writeShort(0x0112);    // Orientation
+        out.writeShort(3);         // SHORT
+        out.writeInt(1);
+        out.writeShort(orientation);
+        out.writeShort(0);
+        out.writeInt(0);           // ไม่มี IFD ถัดไป
+    }
+
+    private static boolean stripPng(DataInputStream in, DataOutputStream out) throws IOException {
+        out.write(in.readNBytes(PNG_SIGNATURE.length));
+        boolean dropped = false;
+        while (true) {
+            int len = in.readInt();
+            if (len < 0) throw new MalformedImageException("Malformed PNG chunk");
+            byte[] type = in.readNBytes(4);
+            if (type.length < 4) throw new EOFException();
+            String name = new String(type, StandardCharsets.US_ASCII);
+            if (PNG_DROP.contains(name)) {
+                in.skipNBytes(len + 4L); // data + CRC
+                dropped = true;
+                continue;
+            }
+            out.writeInt(len);
+            out.write(type);
+            copy(in, out, len + 4L);
+            if (name.equals("IEND")) return dropped;
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, long n) throws IOException {
+        byte[] buf = new byte[8192];
+        while (n > 0) {
+            int r = in.read(buf, 0, (int) Math.min(buf.length, n));
+            if (r < 0) throw new EOFException();
+            out.write(buf, 0, r);
+            n -= r;
+        }
+    }
+
+    private static boolean startsWith(byte[] b, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
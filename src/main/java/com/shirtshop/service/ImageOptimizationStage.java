@@ -0,0 +1,167 @@
+package com.shirtshop.service;
+
+import com.shirtshop.config.ImageOptimizationProperties;
+import com.shirtshop.exception.ApiException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ขั้นก่อนอัปโหลดขึ้น Cloudinary: ส่งรูป (temp file) ให้ ImageOptimizer บน worker pool ขนาดจำกัด
+ * - คิวเต็ม/ช้าเกิน timeout/ผลใหญ่กว่าเดิม/ไม่ใช่รูป → ใช้ไฟล์เดิม (ไม่ทำให้การอัปโหลดล้ม)
+ *   แต่ยังตัด EXIF/GPS ออกแบบ lossless ก่อนเสมอ (ImageMetadataStripper)
+ * - JPEG/PNG ที่โครงสร้างเสียจนตัด metadata ไม่ได้ → ปฏิเสธด้วย 400 INVALID_IMAGE (ไม่ส่งไฟล์ที่อาจมี GPS ขึ้นไป)
+ * - metric ต่อโฟลเดอร์: images.optimize.duration, images.optimize.bytes.in/out/saved,
+ *   images.optimize.skipped{reason}
+ */
+@Slf4j
+@Service
+public class ImageOptimizationStage {
+
+    private final ImageOptimizer optimizer;
+    private final ImageOptimizationProperties props;
+    private final MeterRegistry registry;
+    private final ThreadPoolExecutor pool;
+
+    public ImageOptimizationStage(ImageOptimizer optimizer, ImageOptimizationProperties props, MeterRegistry registry) {
+        this.optimizer = optimizer;
+        this.props = props;
+        this.registry = registry;
+        int threads = Math.max(1, props.getThreads());
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, props.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "img-opt-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        registry.gauge("images.optimize.queue.size", pool, p -> p.getQueue().size());
+    }
+
+    /**
+     * คืนไฟล์ที่ควรอัปโหลด: input เดิม หรือ temp file ใหม่ที่ปรับแล้ว
+     * ผู้เรียกต้องลบไฟล์ที่ได้คืนเมื่อไม่ใช่ input (ดู CloudinaryService.uploadFile)
+     */
+    public Path process(Path input, String folder) throws IOException {
+        if (input == null) return input;
+        long inputSize = Files.size(input);
+        if (inputSize == 0) return input;
+        String tag = folderTag(folder);
+        if (!props.isEnabled()) return stripped(input, tag);
+        if (inputSize < props.getSkipBelowBytes()) {
+            skipped(tag, "small");
+            return stripped(input, tag);
+        }
+
+        ImageOptimizationProperties.Profile profile = props.profileFor(folder);
+        Path output = Files.createTempFile(input.getParent(), "opt-", ".img");
+        boolean keepOutput = false;
+        try {
+            ImageOptimizer.Result result = run(input, output, profile, tag);
+            if (result == null) return stripped(input, tag);
+            long outputSize = Files.size(output);
+            if (outputSize >= inputSize) {
+                skipped(tag, "larger");
+                return stripped(input, tag);
+            }
+            registry.counter("images.optimize.bytes.in", "folder", tag).increment(inputSize);
+            registry.counter("images.optimize.bytes.out", "folder", tag).increment(outputSize);
+            registry.counter("images.optimize.bytes.saved", "folder", tag).increment(inputSize - outputSize);
+            keepOutput = true;
+            return output;
+        } finally {
+            if (!keepOutput) Files.deleteIfExists(output);
+        }
+    }
+
+    /** ทางสำรองที่ไม่ได้เข้ารหัสใหม่: ตัด metadata แบบ lossless ลง temp file ใหม่ (ไม่มีอะไรให้ตัด → input เดิม) */
+    private Path stripped(Path input, String tag) throws IOException {
+        Path output = Files.createTempFile(input.getParent(), "strip-", ".img");
+        boolean keepOutput = false;
+        try {
+            keepOutput = ImageMetadataStripper.strip(input, output);
+            return keepOutput ? output : input;
+        } catch (ImageMetadataStripper.MalformedImageException e) {
+            // ไฟล์เสีย (เช่นอัปโหลดไม่ครบ) ตัด metadata ไม่ได้ → ให้ผู้ใช้ส่งใหม่ แทนที่จะส่งต้นฉบับที่อาจมี EXIF/GPS
+            skipped(tag, "strip-error");
+            log.debug("[ImageOptimize] {} strip failed: {}", tag, e.getMessage());
+            throw new ApiException("INVALID_IMAGE", "Image file is corrupted or incomplete, please upload it again.");
+        } finally {
+            if (!keepOutput) Files.deleteIfExists(output);
+        }
+    }
+
+    private ImageOptimizer.Result run(Path input, Path output, ImageOptimizationProperties.Profile profile, String tag) {
+        long start = System.nanoTime();
+        // เลิกรอแล้ว (timeout) แต่ worker ยังเขียน output อยู่ → ให้ worker ลบไฟล์เองตอนจบ
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Future<ImageOptimizer.Result> future;
+        try {
+            future = pool.submit(() -> {
+                try {
+                    return optimizer.optimize(input, output, profile);
+                } finally {
+                    if (abandoned.get()) Files.deleteIfExists(output);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            skipped(tag, "busy");
+            return null;
+        }
+
+        ImageOptimizer.Result result;
+        try {
+            result = future.get(Math.max(1, props.getTimeoutMs()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandoned.set(true);
+            future.cancel(true);
+            skipped(tag, "timeout");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned.set(true);
+            future.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            log.debug("[ImageOptimize] {} failed: {}", tag, e.getCause().toString());
+            skipped(tag, "error");
+            return null;
+        } finally {
+            Timer.builder("images.optimize.duration")
+                    .tag("folder", tag)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (result == null) skipped(tag, "unsupported");
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private void skipped(String folder, String reason) {
+        registry.counter("images.optimize.skipped", "folder", folder, "reason", reason).increment();
+    }
+
+    /** ใช้ชื่อท้ายสุดของโฟลเดอร์เป็น tag (จำนวนค่าจำกัด) */
+    private static String folderTag(String folder) {
+        if (folder == null || folder.isBlank()) return "none";
+        return folder.substring(folder.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,23 @@
+package com.shirtshop.service;
+
+import com.shirtshop.config.ImageOptimizationProperties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * ขั้นปรับรูปก่อนอัปโหลด (ย่อขนาด/ตัด metadata/เข้ารหัสใหม่)
+ * ค่าเริ่มต้นคือ ImageIoOptimizer — ประกาศ bean ของตัวเองเป็น @Primary เพื่อเปลี่ยน implementation
+ * ทำงานบนไฟล์ (temp file ของ multipart) เพื่อไม่ต้องถือไฟล์ทั้งก้อนไว้ใน heap
+ */
+public interface ImageOptimizer {
+
+    /**
+     * อ่านจาก input แล้วเขียนผลลง output
+     * @return ผลการปรับ หรือ null ถ้าไม่ใช่รูปที่รองรับ/ไม่คุ้มที่จะปรับ (ใช้ไฟล์เดิม; output ไม่มีความหมาย)
+     */
+    Result optimize(Path input, Path output, ImageOptimizationProperties.Profile profile) throws IOException;
+
+    /** format = ชื่อ format ที่เข้ารหัสออกมา เช่น jpeg, png */
+    record Result(String format) {}
+}
@@ -0,0 +1,151 @@
+package com.shirtshop.service;
+
+import com.shirtshop.dto.CloudinaryUploadResponse;
+import com.shirtshop.exception.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * อัปโหลดรูปขึ้น Cloudinary แบบขนานด้วย virtual thread
+ * - จำกัด concurrency สองชั้น: ต่อ request (per-request) และรวมทั้งแอป (global)
+ * - ผลลัพธ์เรียงตามลำดับไฟล์ที่ส่งมาเสมอ
+ * - ถ้าอัปโหลดไฟล์ใดล้ม ไฟล์ที่ยังไม่เริ่มจะถูกข้าม ส่วนที่กำลังอัปจะรอจนจบ
+ *   แล้วส่งทุกไฟล์ที่อัปขึ้นไปแล้วเข้า ImageDeletionOutbox (rollback) ก่อนโยน error เดิม
+ */
+@Slf4j
+@Service
+public class ImageUploadPipeline {
+
+    private static final long RETRY_AFTER_SECONDS = 2;
+
+    private final CloudinaryService cloudinaryService;
+    private final ImageDeletionOutbox deletionOutbox;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore global;
+    private final int perRequest;
+    private final long acquireTimeoutMs;
+
+    public ImageUploadPipeline(
+            CloudinaryService cloudinaryService,
+            ImageDeletionOutbox deletionOutbox,
+            @Value("${app.images.upload.global-concurrency:16}") int globalConcurrency,
+            @Value("${app.images.upload.per-request-concurrency:4}") int perRequest,
+            @Value("${app.images.upload.acquire-timeout-ms:30000}") long acquireTimeoutMs
+    ) {
+        this.cloudinaryService = cloudinaryService;
+        this.deletionOutbox = deletionOutbox;
+        this.global = new Semaphore(Math.max(1, globalConcurrency), true);
+        this.perRequest = Math.max(1, perRequest);
+        this.acquireTimeoutMs = Math.max(1, acquireTimeoutMs);
+    }
+
+    /** อัปโหลดทุกไฟล์ (ข้ามไฟล์ว่าง) คืนผลตามลำดับเดิม; ล้มไฟล์เดียว = rollback ทั้งชุด */
+    public List<CloudinaryUploadResponse> uploadAll(List<MultipartFile> files, String folder) {
+        if (files == null || files.isEmpty()) return List.of();
+        List<MultipartFile> todo = files.stream().filter(f -> f != null && !f.isEmpty()).toList();
+        if (todo.size() == 1) {
+            return List.of(limited(() -> cloudinaryService.uploadFile(todo.get(0), folder)));
+        }
+
+        Semaphore local = new Semaphore(perRequest);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<CloudinaryUploadResponse>> futures = new ArrayList<>(todo.size());
+        for (MultipartFile f : todo) {
+            futures.add(executor.submit(() -> {
+                try {
+                    return bounded(local, failed, () -> cloudinaryService.uploadFile(f, folder));
+                } catch (Exception e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }));
+        }
+
+        // ไม่ cancel(true): งานที่กำลังอัปอยู่อาจขึ้น Cloudinary ไปแล้ว → รอให้จบทุกงาน แล้วเก็บผลที่สำเร็จไป rollback
+        // งานที่ยังไม่เริ่มจะเห็น failed แล้วข้ามเอง (คืน null)
+        List<CloudinaryUploadResponse> out = new ArrayList<>(todo.size());
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<CloudinaryUploadResponse> fu : futures) {
+            while (true) {
+                try {
+                    CloudinaryUploadResponse r = fu.get();
+                    if (r != null) out.add(r);
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = unwrap(e.getCause());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    failed.set(true);
+                    if (failure == null) failure = new IllegalStateException("Image upload interrupted", e);
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure == null) return out;
+
+        List<String> uploaded = new ArrayList<>();
+        for (CloudinaryUploadResponse r : out) uploaded.add(r.getPublicId());
+        log.warn("[ImageUpload] upload failed, rolling back {} image(s): {}", uploaded.size(), failure.getMessage());
+        deletionOutbox.enqueue(uploaded);
+        throw failure;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /* ---------- internals ---------- */
+
+    /** รอคิวต่อ request; ถ้าระหว่างรอมีไฟล์อื่นล้มไปแล้วก็ไม่ต้องอัป (คืน null) */
+    private <T> T bounded(Semaphore local, AtomicBoolean failed, Callable<T> task) throws Exception {
+        local.acquire();
+        try {
+            if (failed.get()) return null;
+            return limitedChecked(task);
+        } finally {
+            local.release();
+        }
+    }
+
+    /** รันบน thread ปัจจุบันภายใต้ global cap */
+    private <T> T limited(Callable<T> task) {
+        try {
+            return limitedChecked(task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Image upload interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T limitedChecked(Callable<T> task) throws Exception {
+        if (!global.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new ServiceBusyException("Image service is busy, please retry.", RETRY_AFTER_SECONDS);
+        }
+        try {
+            return task.call();
+        } finally {
+            global.release();
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable t) {
+        if (t instanceof RuntimeException re) return re;
+        if (t instanceof Error err) throw err;
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,67 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Migration: เติม imageVariants ให้สินค้าที่สร้างก่อนมีฟิลด์นี้ (รันตอน start, ทำซ้ำได้ไม่มีผลข้างเคียง)
+ * เปลี่ยนความกว้างใน app.images.variants ภายหลัง → ลบฟิลด์ imageVariants ทิ้งแล้ว restart เพื่อสร้างใหม่
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageVariantBackfill implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageVariantFactory imageVariantFactory;
+    private final ProductCache productCache;
+    private final VersionStamps versionStamps;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query q = new Query(Criteria.where("imageVariants").exists(false));
+        q.fields().include("imageUrls");
+
+        // updatedAt ใช้เป็น lastModified / ETag ของสินค้า → ต้องขยับด้วยเมื่อ response เปลี่ยน
+        LocalDateTime now = LocalDateTime.now();
+        int pending = 0, total = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        try (Stream<Product> stream = mongoTemplate.stream(q, Product.class)) {
+            for (Product p : (Iterable<Product>) stream::iterator) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(p.getId())),
+                        Update.update("imageVariants", imageVariantFactory.of(p.getImageUrls()))
+                                .set("updatedAt", now));
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    total += pending;
+                    pending = 0;
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+            total += pending;
+        }
+
+        if (total > 0) {
+            productCache.clear();
+            versionStamps.bump(VersionStamps.PRODUCTS);
+            log.info("[ImageVariantBackfill] set imageVariants on {} products", total);
+        }
+    }
+}
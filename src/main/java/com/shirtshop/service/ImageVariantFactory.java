@@ -0,0 +1,59 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.ImageVariants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * สร้าง URL รูปตามขนาด (thumb/card/detail + srcset) จาก secure_url ของ Cloudinary
+ * - แทรก transformation "f_auto,q_auto,c_limit,w_N" ต่อจาก /image/upload/
+ * - URL ที่ไม่ใช่ Cloudinary ใช้ตัวเดิมทุกขนาด (srcset = null)
+ */
+@Component
+public class ImageVariantFactory {
+
+    private static final String UPLOAD_SEGMENT = "/image/upload/";
+
+    @Value("${app.images.variants.thumb-width:160}")
+    private int thumbWidth;
+
+    @Value("${app.images.variants.card-width:480}")
+    private int cardWidth;
+
+    @Value("${app.images.variants.detail-width:1080}")
+    private int detailWidth;
+
+    public ImageVariants of(String url) {
+        if (url == null || url.isBlank()) return null;
+        ImageVariants v = new ImageVariants();
+        if (url.indexOf(UPLOAD_SEGMENT) < 0) {
+            v.setThumb(url);
+            v.setCard(url);
+            v.setDetail(url);
+            return v;
+        }
+        v.setThumb(resize(url, thumbWidth));
+        v.setCard(resize(url, cardWidth));
+        v.setDetail(resize(url, detailWidth));
+        v.setSrcset(v.getThumb() + " " + thumbWidth + "w, "
+                + v.getCard() + " " + cardWidth + "w, "
+                + v.getDetail() + " " + detailWidth + "w");
+        return v;
+    }
+
+    /** ขนานกับ imageUrls (index เดียวกัน) */
+    public List<ImageVariants> of(List<String> urls) {
+        if (urls == null) return new ArrayList<>();
+        List<ImageVariants> out = new ArrayList<>(urls.size());
+        for (String url : urls) out.add(of(url));
+        return out;
+    }
+
+    private static String resize(String url, int width) {
+        int at = url.indexOf(UPLOAD_SEGMENT) + UPLOAD_SEGMENT.length();
+        return url.substring(0, at) + "f_auto,q_auto,c_limit,w_" + width + "/" + url.substring(at);
+    }
+}
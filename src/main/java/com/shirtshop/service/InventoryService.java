@@ -5,21 +5,27 @@ import com.shirtshop.dto.LowStockItemResponse;
 import com.shirtshop.entity.Order;
 import com.shirtshop.entity.OrderItem;
 import com.shirtshop.entity.Product;
-import com.shirtshop.entity.VariantStock;
 import com.shirtshop.repository.ProductRepository;
+import com.mongodb.client.MongoCursor;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
 public class InventoryService {
 
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final VersionStamps versionStamps;
+    private final CategoryDirectory categoryDirectory;
+    private final MongoTemplate mongoTemplate;
 
     // ========================= Bridge (รองรับเมธอดเดิม) =========================
     /** เดิม: ตัดสต๊อกด้วยรายการ items */
@@ -72,82 +78,40 @@ public class InventoryService {
         }
         if (qtyByKey.isEmpty()) return;
 
-        // โหลดสินค้าที่เกี่ยวข้องทั้งหมดครั้งเดียว
-        Set<String> productIds = qtyByKey.keySet().stream().map(k -> k.productId).collect(Collectors.toSet());
-        List<Product> products = productRepository.findAllById(productIds);
-        Map<String, Product> productById = products.stream()
-                .collect(Collectors.toMap(Product::getId, Function.identity()));
-
-        // ถ้าจะ "ตัด" สต๊อก ให้ตรวจพอก่อน
-        if (isDeduct) {
+        // ปรับด้วย $inc ทีละ variant (ไม่โหลด/ไม่ save Product ทั้งก้อน)
+        // ตอนตัดสต๊อก query จะ match เฉพาะ variant ที่มีของพอ → กันติดลบแบบ atomic
+        List<Map.Entry<Key, Integer>> applied = new ArrayList<>();
+        try {
             for (Map.Entry<Key, Integer> e : qtyByKey.entrySet()) {
-                Product p = productById.get(e.getKey().productId);
-                if (p == null) {
-                    throw new IllegalStateException("Product not found: " + e.getKey().productId);
-                }
-                VariantStock vs = findVariantByColorSize(p, e.getKey().color, e.getKey().size);
-                int need = e.getValue();
-                if (vs.getQuantity() < need) {
+                Key k = e.getKey();
+                int delta = isDeduct ? -e.getValue() : e.getValue();
+
+                if (!productRepository.incVariantStock(k.productId, k.color, k.size, delta)) {
+                    // คืนค่าที่ปรับไปแล้วในรอบนี้ แล้วค่อยโยน error
+                    for (Map.Entry<Key, Integer> done : applied) {
+                        Key d = done.getKey();
+                        int undo = isDeduct ? done.getValue() : -done.getValue();
+                        productRepository.incVariantStock(d.productId, d.color, d.size, undo);
+                    }
+                    if (isDeduct) {
+                        throw new IllegalStateException(
+                                "Insufficient stock or variant not found: product=" + k.productId
+                                        + ", color=" + k.color
+                                        + ", size="  + k.size
+                                        + " (need " + e.getValue() + ")"
+                        );
+                    }
                     throw new IllegalStateException(
-                            "Insufficient stock: product=" + p.getId()
-                                    + ", color=" + e.getKey().color
-                                    + ", size="  + e.getKey().size
-                                    + " (need " + need + ", have " + vs.getQuantity() + ")"
-                    );
+                            "Variant not found: product=" + k.productId + ", color=" + k.color + ", size=" + k.size);
                 }
+                applied.add(e);
             }
+        } finally {
+            // สต๊อกใน Mongo เปลี่ยน (หรือถูก rollback) → ทิ้งสินค้าที่เกี่ยวข้องออกจากแคช
+            qtyByKey.keySet().stream().map(Key::productId).distinct().forEach(productCache::invalidate);
+            categoryDirectory.invalidate();   // inStockCount อาจเปลี่ยน
+            versionStamps.bump(VersionStamps.PRODUCTS);
         }
-
-        // ปรับจริง (กันติดลบ)
-        for (Map.Entry<Key, Integer> e : qtyByKey.entrySet()) {
-            Product p = productById.get(e.getKey().productId);
-            if (p == null) continue; // หรือโยน exception ตาม policy
-
-            VariantStock vs = findVariantByColorSize(p, e.getKey().color, e.getKey().size);
-            int current = vs.getQuantity();
-            int delta   = e.getValue();
-            int nextQty = isDeduct ? (current - delta) : (current + delta);
-            if (nextQty < 0) {
-                throw new IllegalStateException("Quantity would be negative for product=" + p.getId()
-                        + ", color=" + e.getKey().color + ", size=" + e.getKey().size);
-            }
-            vs.setQuantity(nextQty);
-        }
-
-        // ✅ อัปเดต stockQuantity รวมของสินค้าให้เท่าผลรวม variant ทุกตัว
-        for (Product p : products) {
-            recomputeTotalStock(p);
-        }
-
-        productRepository.saveAll(products);
-    }
-
-    /** หา VariantStock ด้วย color + size (null-safe) */
-    private VariantStock findVariantByColorSize(Product p, String color, String size) {
-        List<VariantStock> list = p.getVariantStocks();
-        if (list == null) {
-            throw new IllegalStateException("No variant list for product=" + p.getId());
-        }
-        String c = safe(color);
-        String s = safe(size);
-
-        return list.stream()
-                .filter(v -> Objects.equals(safe(v.getColor()), c) && Objects.equals(safe(v.getSize()), s))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException(
-                        "Variant not found: product=" + p.getId() + ", color=" + color + ", size=" + size));
-    }
-
-    /** คำนวณสต๊อกรวมใหม่จากทุกรายการ variant แล้วอัปเดตลง Product.stockQuantity */
-    private void recomputeTotalStock(Product p) {
-        int total = 0;
-        List<VariantStock> list = p.getVariantStocks();
-        if (list != null) {
-            for (VariantStock v : list) {
-                if (v != null) total += Math.max(0, v.getQuantity());
-            }
-        }
-        p.setStockQuantity(total);
     }
 
     private static String safe(String s) { return s == null ? "" : s; }
@@ -158,40 +122,40 @@ public class InventoryService {
     // ========================= Low Stock Report =========================
     /**
      * รายการสต๊อกต่ำ (<= threshold) — ใช้ DTO: LowStockItemResponse(id, name, stock, sku)
-     * ตอนนี้ Variant ไม่มี sku → ใส่ค่า null ไปก่อน
+     * รวมจำนวน/กรอง/เรียง/แบ่งหน้าใน Mongo แล้วคืนเป็น cursor → ไม่ต้อง findAll ทั้ง collection
+     * ตอนนี้ Variant ไม่มี sku → ใส่ค่า null ไปก่อน; ผู้เรียกต้องปิด Stream
      */
-    @Transactional(readOnly = true)
-    public List<LowStockItemResponse> getLowStock(int page, int size, Integer thresholdOpt) {
+    public Stream<LowStockItemResponse> streamLowStock(int page, int size, Integer thresholdOpt) {
         final int threshold = (thresholdOpt != null ? thresholdOpt : 5);
-
-        List<Product> all = productRepository.findAll();
-
-        List<LowStockItemResponse> result = new ArrayList<>();
-        for (Product p : all) {
-            int totalQty = 0;
-            List<VariantStock> variants = p.getVariantStocks();
-            if (variants != null) {
-                for (VariantStock v : variants) {
-                    if (v != null) totalQty += Math.max(0, v.getQuantity());
-                }
-            }
-            if (totalQty <= threshold) {
-                result.add(LowStockItemResponse.builder()
-                        .id(p.getId())
-                        .name(p.getName())
-                        .stock(totalQty)
+        if (size <= 0) return Stream.empty();
+
+        // stock = ผลรวม max(0, quantity) ของทุก variant (เหมือนเดิม)
+        Document stockExpr = new Document("$sum", new Document("$map", new Document()
+                .append("input", new Document("$ifNull", List.of("$variantStocks", List.of())))
+                .append("as", "v")
+                .append("in", new Document("$max", List.of(0, new Document("$ifNull", List.of("$$v.quantity", 0)))))));
+
+        List<Document> pipeline = List.of(
+                new Document("$project", new Document("name", 1).append("stock", stockExpr)),
+                new Document("$match", new Document("stock", new Document("$lte", threshold))),
+                // เรียงจากสต็อกน้อย → มาก (_id กันลำดับสลับระหว่างหน้า)
+                new Document("$sort", new Document("stock", 1).append("_id", 1)),
+                new Document("$skip", (long) Math.max(0, page) * size),
+                new Document("$limit", size)
+        );
+
+        MongoCursor<Document> cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class))
+                .aggregate(pipeline)
+                .batchSize(Math.min(size, 200))
+                .iterator();
+        Spliterator<Document> split = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED);
+        return StreamSupport.stream(split, false)
+                .onClose(cursor::close)
+                .map(d -> LowStockItemResponse.builder()
+                        .id(String.valueOf(d.get("_id")))
+                        .name(d.getString("name"))
+                        .stock(((Number) d.get("stock")).intValue())
                         .sku(null) // ไม่มี sku ใน VariantStock ตอนนี้
                         .build());
-            }
-        }
-
-        // เรียงจากสต็อกน้อย → มาก
-        result.sort(Comparator.comparing(LowStockItemResponse::getStock));
-
-        // Pagination
-        int from = Math.max(0, page * size);
-        int to   = Math.min(result.size(), from + size);
-        if (from >= to) return List.of();
-        return result.subList(from, to);
     }
 }
@@ -0,0 +1,59 @@
+package com.shirtshop.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * เขียน JSON array ทีละ element จาก Stream (เช่น cursor ของ Mongo) ลง OutputStream
+ * - ใช้ JsonGenerator ตัวเดียวตลอด response; flush ทุก ๆ batch-size แถว
+ * - หน่วยความจำต่อ request ไม่ขึ้นกับจำนวนแถวทั้งหมด (heap ของคอนเทนเนอร์มีแค่ 384MB)
+ * - ใช้ ObjectMapper ของ Spring → รูปแบบ JSON (วันที่ ฯลฯ) เหมือน endpoint ปกติ
+ */
+@Component
+public class JsonArrayStreamer {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    @Value("${app.streaming.batch-size:200}")
+    private int batchSize;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // ค่าเริ่มต้นของ Jackson จะ flush ทุกครั้งที่เขียน value → ปิดไว้แล้ว flush เองทีละ batch
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /** ขนาด batch ของ cursor และรอบการ flush */
+    public int batchSize() {
+        return Math.max(1, batchSize);
+    }
+
+    /** เขียน [ map(e1), map(e2), ... ] แล้วปิด stream ต้นทางเสมอ */
+    public <T, R> void write(OutputStream out, Stream<T> source, Function<T, R> mapper) throws IOException {
+        int flushEvery = batchSize();
+        try (Stream<T> s = source;
+             JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // response stream เป็นของ container
+            gen.writeStartArray();
+            Iterator<T> it = s.iterator();
+            int n = 0;
+            while (it.hasNext()) {
+                writer.writeValue(gen, mapper.apply(it.next()));
+                if (++n % flushEvery == 0) gen.flush();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
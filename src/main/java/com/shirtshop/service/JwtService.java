@@ -3,15 +3,27 @@ package com.shirtshop.service;
 import com.shirtshop.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class JwtService {
 
+    /** claim ของ refresh token: id ของสาย (family) ที่หมุนต่อกันมาจากการ login ครั้งเดียว */
+    public static final String CLAIM_FAMILY = "fam";
+
     @Value("${app.jwt.access-secret}")
     private String accessSecret;
 
@@ -24,6 +36,26 @@ public class JwtService {
     @Value("${app.jwt.refresh-expiration-ms}")
     private long refreshExpirationMs;
 
+    @Value("${app.jwt.verify-cache-size:10000}")
+    private int verifyCacheSize;
+
+    // parser ที่ผูก key ไว้แล้ว (thread-safe) สร้างครั้งเดียว ไม่ต้อง getBytes()/build ทุก request
+    private JwtParser accessParser;
+    private JwtParser refreshParser;
+    private Key refreshKey;
+
+    /** digest ของ access token → claims ที่ verify แล้ว (ใช้ได้ถึง exp ของ token) */
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+
+    private record VerifiedClaims(Claims claims, long expiresAt) {}
+
+    @PostConstruct
+    void initParsers() {
+        accessParser = Jwts.parserBuilder().setSigningKey(keyFrom(accessSecret)).build();
+        refreshKey = keyFrom(refreshSecret);
+        refreshParser = Jwts.parserBuilder().setSigningKey(refreshKey).build();
+    }
+
     private Key keyFrom(String secret) {
         byte[] bytes = secret.getBytes();
         if (bytes.length < 32) {
@@ -47,10 +79,40 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * ตรวจ access token ครั้งเดียวแล้วคืน claims (แทน validateToken + extractUserId)
+     * token เดิมที่เคย verify แล้วและยังไม่หมดอายุ จะได้ claims จาก cache โดยไม่ต้องคำนวณ HMAC/parse JSON ซ้ำ
+     * @throws JwtException / IllegalArgumentException ถ้า token ไม่ valid หรือหมดอายุ
+     */
+    public Claims verify(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("JWT is empty");
+        }
+        String key = digest(token);
+        VerifiedClaims hit = verified.get(key);
+        if (hit != null) {
+            if (System.currentTimeMillis() < hit.expiresAt()) {
+                return hit.claims();
+            }
+            // หมดอายุ → ทิ้ง แล้วให้ parser โยน ExpiredJwtException ตามปกติ
+            verified.remove(key, hit);
+        }
+
+        Claims claims = accessParser.parseClaimsJws(token).getBody();
+        Date exp = claims.getExpiration();
+        if (exp != null) {
+            if (verified.size() >= verifyCacheSize) {
+                evictVerified();
+            }
+            verified.put(key, new VerifiedClaims(claims, exp.getTime()));
+        }
+        return claims;
+    }
+
     // ตรวจสอบ token
     public boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(accessSecret.getBytes()).parseClaimsJws(token);
+            accessParser.parseClaimsJws(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -59,29 +121,61 @@ public class JwtService {
 
     // ดึง subject (userId)
     public String extractUserId(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(accessSecret.getBytes())
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        return verify(token).getSubject();
     }
 
+    /** refresh token ใบแรกของสายใหม่ (login/register) */
     public String generateRefreshToken(User user) {
+        return generateRefreshToken(user, UUID.randomUUID().toString());
+    }
+
+    /** refresh token ใบถัดไปในสายเดิม (ตอน rotate) — jti ใหม่ทุกใบ */
+    public String generateRefreshToken(User user, String familyId) {
         long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user.getId())
+                .claim(CLAIM_FAMILY, familyId)
                 .setIssuedAt(new Date(now))
                 .setExpiration(new Date(now + refreshExpirationMs))
-                .signWith(keyFrom(refreshSecret), SignatureAlgorithm.HS256)
+                .signWith(refreshKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Jws<Claims> parse(String token, boolean isRefresh) {
-        Key key = Keys.hmacShaKeyFor((isRefresh ? refreshSecret : accessSecret).getBytes());
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return (isRefresh ? refreshParser : accessParser).parseClaimsJws(token);
     }
 
     // เผื่ออยากเรียกแบบชัดเจน
     public Jws<Claims> parseAccess(String token)  { return parse(token, false); }
     public Jws<Claims> parseRefresh(String token) { return parse(token, true); }
+
+    public static String familyOf(Claims refreshClaims) {
+        return refreshClaims.get(CLAIM_FAMILY, String.class);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static String digest(String token) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** ล้างตัวที่หมดอายุก่อน ถ้ายังเต็มอยู่ให้ทิ้งราว 10% */
+    private void evictVerified() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(v -> now >= v.expiresAt());
+        if (verified.size() < verifyCacheSize) return;
+
+        int toDrop = Math.max(1, verifyCacheSize / 10);
+        Iterator<String> it = verified.keySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
 }
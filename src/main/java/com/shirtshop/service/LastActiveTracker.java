@@ -0,0 +1,68 @@
+package com.shirtshop.service;
+
+import com.shirtshop.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * บัฟเฟอร์ lastActive แบบ write-behind
+ * - ทุก request แค่ put (userId → เวลาล่าสุด) ลง map ในหน่วยความจำ
+ * - ทุก ๆ flush-interval จะรวบเป็น bulkWrite (unordered) ครั้งเดียว: $set lastActive ต่อ user
+ * จำนวน write จึงเท่ากับจำนวน user ที่ active ในรอบนั้น ไม่ใช่จำนวน request
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LastActiveTracker {
+
+    private final UserRepository userRepository;
+
+    private final Map<String, Instant> pending = new ConcurrentHashMap<>();
+
+    /** เรียกจาก ActiveUserFilter ทุก request ที่ล็อกอินแล้ว */
+    public void touch(String userId) {
+        if (userId == null || userId.isBlank()) return;
+        pending.put(userId, Instant.now());
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.presence.flush-interval-ms:5000}",
+            initialDelayString = "${app.presence.flush-interval-ms:5000}"
+    )
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<String, Instant> batch = new HashMap<>();
+        for (Map.Entry<String, Instant> e : pending.entrySet()) {
+            String userId = e.getKey();
+            Instant at = e.getValue();
+            // ถ้ามีค่าที่ใหม่กว่าเข้ามาระหว่างนี้ remove จะไม่สำเร็จ → เก็บไว้ flush รอบหน้า
+            if (pending.remove(userId, at)) {
+                batch.put(userId, at);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            userRepository.bulkUpdateLastActive(batch);
+            log.debug("[LastActiveTracker] flushed {} users", batch.size());
+        } catch (Exception ex) {
+            // ใส่คืนเข้า buffer (ถ้าระหว่างนี้มีค่าที่ใหม่กว่า ให้ใช้ค่าใหม่)
+            batch.forEach((userId, at) -> pending.merge(userId, at, (a, b) -> a.isAfter(b) ? a : b));
+            log.warn("[LastActiveTracker] flush failed ({} users), will retry: {}", batch.size(), ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
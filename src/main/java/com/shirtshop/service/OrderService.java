@@ -6,6 +6,7 @@ import com.shirtshop.dto.CreateOrderResponse;
 import com.shirtshop.dto.OrderListResponse;
 import com.shirtshop.dto.OrderResponse;
 import com.shirtshop.entity.*;
+import com.shirtshop.mapper.OrderMapper;
 import com.shirtshop.repository.AddressRepository;
 import com.shirtshop.repository.CartRepository;
 import com.shirtshop.repository.OrderRepository;
@@ -36,6 +37,8 @@ public class OrderService {
     private final CloudinaryService cloudinaryService;
     private final AddressRepository addressRepo;
     private final InventoryService inventoryService;
+    private final ProductSalesService productSalesService;
+    private final OrderMapper orderMapper;
 
     // ⬇️ ใช้ค่าปัจจุบันจาก DB แทนการอ่านจาก application.yml
     private final PaymentSettingsService paymentSettingsService;
@@ -69,6 +72,16 @@ public class OrderService {
         return n.isEmpty() ? null : n;
     }
 
+    /** บันทึก/หักยอดขายหลังเปลี่ยนสถานะสำเร็จ — ล้มได้ ไม่ทำให้ request พัง (flag บน order ยังค้างให้ reconcile) */
+    private void recordSales(Order saved, boolean revert) {
+        try {
+            if (revert) productSalesService.revertPaid(saved);
+            else productSalesService.recordPaid(saved);
+        } catch (RuntimeException e) {
+            log.warn("Sales bucket update failed for order {} (revert={}), will retry: {}", saved.getId(), revert, e.getMessage());
+        }
+    }
+
     /* =============== Scheduled cleanup =============== */
     @Scheduled(fixedRate = 30000)
     public void cleanupExpiredOrders() {
@@ -145,6 +158,7 @@ public class OrderService {
             String itemName = tryStr(ci, "getName", "getProductName", "getTitle");
             it.setName(itemName);
             it.setImageUrl(ci.getImageUrl());
+            it.setImageVariants(ci.getImageVariants());
             it.setUnitPrice((int) ci.getUnitPrice());
             it.setColor(ci.getColor());
             it.setSize(ci.getSize());
@@ -211,13 +225,25 @@ public class OrderService {
 
     /* =============== User actions =============== */
 
+    /** updatedAt ของออเดอร์ (null ถ้าไม่มีออเดอร์หรือไม่มี updatedAt) */
+    public Instant getOrderUpdatedAt(String id) {
+        return orderRepo.findStampById(id).map(Order::getUpdatedAt).orElse(null);
+    }
+
     public OrderResponse getOrder(String id) {
         var o = orderRepo.findById(id).orElseThrow(() -> new IllegalStateException("Order not found"));
-        return mapToOrderResponse(o);
+        return orderMapper.toResponse(o);
     }
 
     public OrderResponse uploadSlip(String orderId, MultipartFile slip) {
         String userId = currentUserId();
+        assertSlipUploadable(orderId, userId);
+        var up = cloudinaryService.uploadFile(slip, "shirtshop/slips");
+        return attachSlip(orderId, userId, up.getUrl());
+    }
+
+    /** เช็คว่าผู้ใช้แนบสลิปให้ออเดอร์นี้ได้ (ใช้ก่อนออก signed upload ด้วย) */
+    public Order assertSlipUploadable(String orderId, String userId) {
         var order = orderRepo.findById(orderId).orElseThrow(() -> new IllegalStateException("Order not found"));
 
         if (!order.getUserId().equals(userId)) {
@@ -226,9 +252,17 @@ public class OrderService {
         if (order.getStatus() == OrderStatus.PAID) {
             throw new IllegalStateException("Order already confirmed");
         }
+        return order;
+    }
 
-        var up = cloudinaryService.uploadFile(slip, "shirtshop/slips");
-        order.setPaymentSlipUrl(up.getUrl());
+    /** บันทึก URL สลิปที่อัปโหลดแล้ว (ทั้งแบบผ่าน backend และแบบ direct upload) */
+    public OrderResponse attachSlip(String orderId, String userId, String slipUrl) {
+        var order = assertSlipUploadable(orderId, userId);
+        if (slipUrl.equals(order.getPaymentSlipUrl())) {
+            return orderMapper.toResponse(order); // finalize ซ้ำ → ไม่ตัดสต๊อกซ้ำ
+        }
+
+        order.setPaymentSlipUrl(slipUrl);
         order.setStatus(OrderStatus.SLIP_UPLOADED);
         order.setUpdatedAt(Instant.now());
 
@@ -236,7 +270,7 @@ public class OrderService {
         inventoryService.deductOnSlipUploaded(order);
 
         order = orderRepo.save(order);
-        return mapToOrderResponse(order);
+        return orderMapper.toResponse(order);
     }
 
     /* =============== List my orders =============== */
@@ -250,7 +284,7 @@ public class OrderService {
         }
 
         var items = pg.getContent().stream()
-                .map(this::mapToOrderResponse)
+                .map(orderMapper::toResponse)
                 .toList();
 
         return new OrderListResponse(
@@ -280,7 +314,7 @@ public class OrderService {
                 })
                 .toList();
 
-        var data = filtered.stream().map(this::mapToOrderResponse).toList();
+        var data = filtered.stream().map(orderMapper::toResponse).toList();
         var newPage = new org.springframework.data.domain.PageImpl<>(data, pageable, data.size());
 
         return new OrderListResponse(
@@ -322,6 +356,7 @@ public class OrderService {
                     cartItem.setProductId(orderItem.getProductId());
                     cartItem.setName(orderItem.getName());
                     cartItem.setImageUrl(orderItem.getImageUrl());
+                    cartItem.setImageVariants(orderItem.getImageVariants());
                     cartItem.setUnitPrice(orderItem.getUnitPrice());
                     cartItem.setColor(orderItem.getColor());
                     cartItem.setSize(orderItem.getSize());
@@ -358,100 +393,47 @@ public class OrderService {
             throw new IllegalArgumentException("Status is required");
         }
 
+        // เขียนเฉพาะฟิลด์สถานะด้วย $set + เงื่อนไข status เดิม (ไม่ save ทั้งเอกสาร)
+        OrderStatus current = order.getStatus();
+        Instant now = Instant.now();
+        Order saved;
+
         switch (newStatus) {
             case PAID -> {
-                if (order.getStatus() != OrderStatus.SLIP_UPLOADED) {
+                if (current != OrderStatus.SLIP_UPLOADED) {
                     throw new IllegalArgumentException("Only SLIP_UPLOADED can be approved (to PAID)");
                 }
-                order.setStatus(OrderStatus.PAID);
-                order.setStatusNote(null);
-
-                if (order.getTrackingTag() == null || order.getTrackingTag().isBlank()) {
-                    order.setTrackingTag(generateTrackingTag(order));
-                    order.setTrackingCreatedAt(Instant.now());
+                String trackingTag = (order.getTrackingTag() == null || order.getTrackingTag().isBlank())
+                        ? generateTrackingTag(order)
+                        : null;
+                saved = orderRepo.markPaid(orderId, current, trackingTag, now);
+                if (saved != null) {
+                    // เปลี่ยนเป็น PAID สำเร็จได้ครั้งเดียว (CAS บน status); ถ้าบันทึกยอดล้ม reconcile จะลองใหม่
+                    recordSales(saved, false);
                 }
-
-                order.setUpdatedAt(Instant.now());
             }
 
-            case REJECTED -> {
-                if (order.getStatus() == OrderStatus.REJECTED || order.getStatus() == OrderStatus.CANCELED) {
+            case REJECTED, CANCELED -> {
+                if (current == OrderStatus.REJECTED || current == OrderStatus.CANCELED) {
                     throw new IllegalArgumentException("Order already closed");
                 }
-                inventoryService.restoreOnClosed(order);
-                order.setStatus(OrderStatus.REJECTED);
-                order.setStatusNote(safeNote(note));
-                order.setUpdatedAt(Instant.now());
-            }
-
-            case CANCELED -> {
-                if (order.getStatus() == OrderStatus.REJECTED || order.getStatus() == OrderStatus.CANCELED) {
-                    throw new IllegalArgumentException("Order already closed");
+                // CAS บน status ก่อน → แอดมินที่แพ้ race จะไม่คืนสต็อกซ้ำ
+                saved = orderRepo.close(orderId, current, newStatus, safeNote(note), now);
+                if (saved != null) {
+                    inventoryService.restoreOnClosed(order);
+                    if (current == OrderStatus.PAID) {
+                        recordSales(saved, true); // หักยอดที่เคยนับไว้ออกจาก /api/products/top
+                    }
                 }
-                inventoryService.restoreOnClosed(order);
-                order.setStatus(OrderStatus.CANCELED);
-                order.setStatusNote(safeNote(note));
-                order.setUpdatedAt(Instant.now());
             }
 
             default -> throw new IllegalArgumentException("Unsupported status: " + newStatus);
         }
 
-        Order saved = orderRepo.save(order);
-        return mapToOrderResponse(saved);
-    }
-
-    /* =============== Mapping =============== */
-
-    private OrderResponse mapToOrderResponse(Order o) {
-        List<Map<String, Object>> itemsPayload = o.getItems() == null ? List.of() :
-                o.getItems().stream().map(it -> {
-                    Map<String, Object> m = new LinkedHashMap<>();
-                    m.put("productId", it.getProductId());
-                    m.put("name", it.getName());
-                    m.put("imageUrl", it.getImageUrl());
-                    m.put("unitPrice", it.getUnitPrice());
-                    m.put("color", it.getColor());
-                    m.put("size", it.getSize());
-                    m.put("quantity", it.getQuantity());
-                    return m;
-                }).toList();
-
-        Map<String, Object> addrPayload = null;
-        Order.ShippingAddress sa = o.getShippingAddress();
-        if (sa != null) {
-            addrPayload = new LinkedHashMap<>();
-            addrPayload.put("recipientName", sa.getRecipientName());
-            addrPayload.put("phone", sa.getPhone());
-            addrPayload.put("line1", sa.getLine1());
-            addrPayload.put("line2", sa.getLine2());
-            addrPayload.put("subDistrict", sa.getSubDistrict());
-            addrPayload.put("district", sa.getDistrict());
-            addrPayload.put("province", sa.getProvince());
-            addrPayload.put("postcode", sa.getPostcode());
+        if (saved == null) {
+            throw new IllegalArgumentException("Order status was changed by someone else: " + orderId);
         }
-
-        return new OrderResponse(
-                o.getId(),
-                o.getUserId(),
-                itemsPayload,
-                o.getSubTotal(),
-                o.getShippingFee(),
-                o.getTotal(),
-                o.getPaymentMethod(),
-                o.getStatus(),
-                o.getPromptpayTarget(),
-                o.getPromptpayQrUrl(),
-                o.getExpiresAt(),
-                o.getPaymentSlipUrl(),
-                o.getAddressId(),
-                addrPayload,
-                o.getTrackingTag(),
-                o.getTrackingCreatedAt(),
-                o.getStatusNote(),
-                o.getCreatedAt(),
-                o.getUpdatedAt()
-        );
+        return orderMapper.toResponse(saved);
     }
 
     /* =============== Utils =============== */
@@ -0,0 +1,124 @@
+package com.shirtshop.service;
+
+import com.shirtshop.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * รัน PasswordEncoder (bcrypt) บน thread pool แยกที่มีขนาดเท่าจำนวนคอร์
+ * - คิวมีขนาดจำกัด: เต็มเมื่อไหร่ตอบ 503 ทันที ไม่ให้ servlet thread ไปกองรอ
+ * - งานที่รอคิวนานเกิน wait-budget จะถูกทิ้ง (client มักเลิกรอไปแล้ว)
+ * - เก็บ histogram เวลาแฮชและเวลารอคิว เพื่อปรับ cost ของ bcrypt ให้ได้ p99 ตามเป้า
+ */
+@Slf4j
+@Service
+public class PasswordHasher {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final long waitBudgetNanos;
+
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry registry,
+            @Value("${app.password.hash-threads:0}") int threads,
+            @Value("${app.password.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password.wait-budget-ms:2000}") long waitBudgetMs
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(
+                size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "pwd-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.waitBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, waitBudgetMs));
+
+        this.encodeTimer = hashTimer(registry, "encode");
+        this.matchTimer = hashTimer(registry, "matches");
+        this.queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = registry.counter("auth.password.rejected");
+        registry.gauge("auth.password.queue.size", pool, p -> p.getQueue().size());
+    }
+
+    public String encode(String raw) {
+        return run(() -> passwordEncoder.encode(raw), encodeTimer);
+    }
+
+    public boolean matches(String raw, String encoded) {
+        return run(() -> passwordEncoder.matches(raw, encoded), matchTimer);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private <T> T run(Supplier<T> work, Timer timer) {
+        final long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueWaitTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > waitBudgetNanos) {
+                    rejected.increment();
+                    throw busy();
+                }
+                return timer.record(work);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private static ServiceBusyException busy() {
+        return new ServiceBusyException("Authentication service is busy. Please try again.", RETRY_AFTER_SECONDS);
+    }
+
+    private static Timer hashTimer(MeterRegistry registry, String op) {
+        return Timer.builder("auth.password.hash")
+                .tag("op", op)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
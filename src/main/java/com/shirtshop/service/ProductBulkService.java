@@ -0,0 +1,506 @@
+package com.shirtshop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.shirtshop.dto.ProductImportResult;
+import com.shirtshop.dto.ProductImportRow;
+import com.shirtshop.dto.VariantStockRequest;
+import com.shirtshop.entity.Product;
+import com.shirtshop.entity.VariantStock;
+import com.shirtshop.util.CategoryKeys;
+import com.shirtshop.util.Csv;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * นำเข้า/ส่งออกสินค้าทีละมาก ๆ แบบ streaming
+ * - import: อ่านทีละแถว (NDJSON / CSV) → validate → bulkWrite ทีละ batch; แถวที่ผิดรายงานเป็นรายแถว ไม่ล้มทั้งไฟล์
+ * - export: เดิน cursor ของ Mongo แล้วเขียนลง response ทีละแถว (ไม่โหลดทั้งแคตตาล็อกเข้า heap)
+ * รูปแบบ CSV: list คั่นด้วย | และ variantStocks เป็น color:size:quantity|...
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductBulkService {
+
+    static final List<String> CSV_COLUMNS = List.of(
+            "id", "name", "description", "price", "category", "imageUrls",
+            "availableColors", "availableSizes", "stockQuantity", "variantStocks");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final CategoryDirectory categoryDirectory;
+    private final VersionStamps versionStamps;
+    private final ImageVariantFactory imageVariantFactory;
+    private final ImageDeletionOutbox deletionOutbox;
+
+    @Value("${app.products.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.products.import.max-errors:1000}")
+    private int maxErrors;
+
+    /** รอบการ flush ของ export (ค่าเดียวกับ JsonArrayStreamer) */
+    @Value("${app.streaming.batch-size:200}")
+    private int exportFlushEvery;
+
+    /* ======================= IMPORT ======================= */
+
+    public ProductImportResult importNdjson(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long row = 0;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (line.isBlank()) continue;
+            try {
+                batch.add(row, objectMapper.readValue(line, ProductImportRow.class));
+            } catch (JsonProcessingException e) {
+                batch.error(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+        return batch.finish();
+    }
+
+    public ProductImportResult importCsv(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        Csv.RowReader reader = new Csv.RowReader(
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+
+        List<String> header = reader.next();
+        if (header == null) return batch.finish();
+        Map<String, Integer> col = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            col.put(header.get(i).trim().replace("\uFEFF", ""), i);
+        }
+        if (!col.containsKey("name")) {
+            batch.error(1, "CSV header must contain at least 'name'; supported columns: " + CSV_COLUMNS);
+            return batch.finish();
+        }
+
+        List<String> fields;
+        long row = 1;
+        while ((fields = reader.next()) != null) {
+            row++;
+            if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+            try {
+                batch.add(row, fromCsv(fields, col));
+            } catch (IllegalArgumentException e) {
+                batch.error(row, e.getMessage());
+            }
+        }
+        return batch.finish();
+    }
+
+    /** สะสมแถวที่ผ่าน validate แล้วเขียนเป็น bulk upsert ทีละ batch */
+    private final class Batch {
+        private final List<Long> rows = new ArrayList<>();
+        private final List<Product> products = new ArrayList<>();
+        private final List<ProductImportResult.RowError> errors = new ArrayList<>();
+        private long total, inserted, updated, failed;
+        private boolean truncated;
+
+        void add(long row, ProductImportRow in) {
+            Product p;
+            try {
+                p = toProduct(in);
+            } catch (IllegalArgumentException e) {
+                error(row, e.getMessage());
+                return;
+            }
+            if (p.getImageUrls() != null) p.setImageVariants(imageVariantFactory.of(p.getImageUrls()));
+            total++;
+            rows.add(row);
+            products.add(p);
+            if (products.size() >= Math.max(1, batchSize)) flush();
+        }
+
+        void error(long row, String message) {
+            total++;
+            failed++;
+            if (errors.size() < maxErrors) errors.add(new ProductImportResult.RowError(row, message));
+            else truncated = true;
+        }
+
+        void flush() {
+            if (products.isEmpty()) return;
+            List<List<String>> dropped = rebindImages();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+            LocalDateTime now = LocalDateTime.now();
+            for (Product p : products) {
+                bulk.upsert(Query.query(Criteria.where("_id").is(p.getId())), toUpdate(p, now));
+            }
+
+            Set<Integer> failedIdx = new HashSet<>();
+            BulkWriteResult result;
+            try {
+                result = bulk.execute();
+            } catch (BulkOperationException e) {
+                result = e.getResult();
+                for (BulkWriteError err : e.getErrors()) {
+                    failedIdx.add(err.getIndex());
+                    failed++;
+                    if (errors.size() < maxErrors) {
+                        errors.add(new ProductImportResult.RowError(rows.get(err.getIndex()), err.getMessage()));
+                    } else {
+                        truncated = true;
+                    }
+                }
+            }
+            inserted += result.getUpserts().size();
+            updated += result.getMatchedCount();
+
+            List<String> orphaned = new ArrayList<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (failedIdx.contains(i)) continue;
+                Product p = products.get(i);
+                p.setUpdatedAt(now);
+                searchIndex.index(p);
+                productCache.invalidate(p.getId());
+                orphaned.addAll(dropped.get(i));
+            }
+            deletionOutbox.enqueue(orphaned);
+            rows.clear();
+            products.clear();
+        }
+
+        /**
+         * แถวที่ส่ง imageUrls มาแทนของเดิม: ตั้ง imagePublicIds ให้ขนานกับ URL ใหม่
+         * (URL เดิม = publicId เดิม, URL ภายนอก/ใหม่ = null) แล้วคืน publicId ที่หลุดออกต่อแถวไว้ลบผ่าน outbox
+         */
+        private List<List<String>> rebindImages() {
+            List<String> ids = new ArrayList<>();
+            for (Product p : products) {
+                if (p.getImageUrls() != null) ids.add(p.getId());
+            }
+            Map<String, Product> existing = new HashMap<>();
+            if (!ids.isEmpty()) {
+                Query q = Query.query(Criteria.where("_id").in(ids));
+                q.fields().include("imageUrls", "imagePublicIds");
+                for (Product e : mongoTemplate.find(q, Product.class)) existing.put(e.getId(), e);
+            }
+
+            List<List<String>> dropped = new ArrayList<>(products.size());
+            for (Product p : products) {
+                if (p.getImageUrls() == null) {
+                    dropped.add(List.of());
+                    continue;
+                }
+                Product old = existing.get(p.getId());
+                List<String> oldUrls = old == null || old.getImageUrls() == null ? List.of() : old.getImageUrls();
+                List<String> oldIds = old == null || old.getImagePublicIds() == null ? List.of() : old.getImagePublicIds();
+                Map<String, String> idByUrl = new HashMap<>();
+                for (int i = 0; i < Math.min(oldUrls.size(), oldIds.size()); i++) {
+                    idByUrl.putIfAbsent(oldUrls.get(i), oldIds.get(i));
+                }
+
+                List<String> newIds = new ArrayList<>(p.getImageUrls().size());
+                for (String url : p.getImageUrls()) newIds.add(idByUrl.remove(url));
+                p.setImagePublicIds(newIds);
+
+                Set<String> drop = new LinkedHashSet<>(oldIds);
+                drop.removeAll(newIds);
+                drop.remove(null);
+                dropped.add(new ArrayList<>(drop));
+            }
+            return dropped;
+        }
+
+        ProductImportResult finish() {
+            flush();
+            if (inserted + updated > 0) {
+                productCache.clear();
+                categoryDirectory.invalidate();
+                versionStamps.bump(VersionStamps.PRODUCTS);
+            }
+            log.info("[ProductBulk] import rows={} inserted={} updated={} failed={}", total, inserted, updated, failed);
+            return new ProductImportResult(total, inserted, updated, failed, List.copyOf(errors), truncated);
+        }
+    }
+
+    private static Update toUpdate(Product p, LocalDateTime now) {
+        Update u = new Update()
+                .set("name", p.getName())
+                .set("description", p.getDescription())
+                .set("price", p.getPrice())
+                .set("category", p.getCategory())
+                .set("categoryKey", p.getCategoryKey())
+                .set("availableColors", p.getAvailableColors())
+                .set("availableSizes", p.getAvailableSizes())
+                .set("variantStocks", p.getVariantStocks())
+                .set("stockQuantity", p.getStockQuantity())
+                .set("updatedAt", now)
+                .setOnInsert("createdAt", now);
+        // ไม่ส่ง imageUrls มา = คงรูปเดิมไว้ (ตอนสร้างใหม่ได้ลิสต์ว่าง)
+        // ส่งมา = แทนทั้งชุด พร้อม imagePublicIds ที่จับคู่ใหม่แล้ว (ดู Batch.rebindImages)
+        if (p.getImageUrls() != null) {
+            u.set("imageUrls", p.getImageUrls())
+                    .set("imagePublicIds", p.getImagePublicIds())
+                    .set("imageVariants", p.getImageVariants());
+        } else {
+            u.setOnInsert("imageUrls", List.of()).setOnInsert("imagePublicIds", List.of())
+                    .setOnInsert("imageVariants", List.of());
+        }
+        return u;
+    }
+
+    /** validate แล้วแปลงเป็น Product (ยังไม่บันทึก) */
+    private static Product toProduct(ProductImportRow in) {
+        if (in == null) throw new IllegalArgumentException("Empty row");
+        if (in.getName() == null || in.getName().isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (in.getPrice() == null || in.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("price is required and must be >= 0");
+        }
+        String id = in.getId();
+        if (id != null && !id.isBlank()) {
+            if (!ObjectId.isValid(id)) throw new IllegalArgumentException("id is not a valid ObjectId: " + id);
+        } else {
+            id = new ObjectId().toHexString();
+        }
+
+        List<String> colors = clean(in.getAvailableColors());
+        List<String> sizes = clean(in.getAvailableSizes());
+
+        List<VariantStock> variants = new ArrayList<>();
+        int stock;
+        if (in.getVariantStocks() != null && !in.getVariantStocks().isEmpty()) {
+            Set<String> seen = new HashSet<>();
+            stock = 0;
+            for (VariantStockRequest v : in.getVariantStocks()) {
+                if (v == null) continue;
+                String color = v.getColor() == null ? "" : v.getColor().trim();
+                String size = v.getSize() == null ? "" : v.getSize().trim();
+                if (v.getQuantity() < 0) {
+                    throw new IllegalArgumentException("variant " + color + "/" + size + ": quantity must be >= 0");
+                }
+                if (!colors.isEmpty() && !color.isEmpty() && !colors.contains(color)) {
+                    throw new IllegalArgumentException("variant color '" + color + "' is not in availableColors");
+                }
+                if (!sizes.isEmpty() && !size.isEmpty() && !sizes.contains(size)) {
+                    throw new IllegalArgumentException("variant size '" + size + "' is not in availableSizes");
+                }
+                if (!seen.add(color + "\u0000" + size)) {
+                    throw new IllegalArgumentException("duplicate variant " + color + "/" + size);
+                }
+                VariantStock vs = new VariantStock();
+                vs.setColor(color);
+                vs.setSize(size);
+                vs.setQuantity(v.getQuantity());
+                variants.add(vs);
+                stock += v.getQuantity();
+            }
+        } else {
+            stock = in.getStockQuantity() == null ? 0 : in.getStockQuantity();
+            if (stock < 0) throw new IllegalArgumentException("stockQuantity must be >= 0");
+        }
+
+        Product p = new Product();
+        p.setId(id);
+        p.setName(in.getName().trim());
+        p.setDescription(in.getDescription());
+        p.setPrice(in.getPrice());
+        p.setCategory(in.getCategory());
+        p.setCategoryKey(CategoryKeys.normalize(in.getCategory()));
+        p.setImageUrls(in.getImageUrls() == null ? null : clean(in.getImageUrls()));
+        p.setAvailableColors(colors);
+        p.setAvailableSizes(sizes);
+        p.setVariantStocks(variants);
+        p.setStockQuantity(stock);
+        return p;
+    }
+
+    private static ProductImportRow fromCsv(List<String> f, Map<String, Integer> col) {
+        ProductImportRow r = new ProductImportRow();
+        r.setId(cell(f, col, "id"));
+        r.setName(cell(f, col, "name"));
+        r.setDescription(cell(f, col, "description"));
+        String price = cell(f, col, "price");
+        if (price != null) {
+            try {
+                r.setPrice(new BigDecimal(price.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("price is not a number: " + price);
+            }
+        }
+        r.setCategory(cell(f, col, "category"));
+        r.setImageUrls(list(cell(f, col, "imageUrls")));
+        r.setAvailableColors(list(cell(f, col, "availableColors")));
+        r.setAvailableSizes(list(cell(f, col, "availableSizes")));
+        String stock = cell(f, col, "stockQuantity");
+        if (stock != null) {
+            try {
+                r.setStockQuantity(Integer.parseInt(stock.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("stockQuantity is not a number: " + stock);
+            }
+        }
+        List<String> variants = list(cell(f, col, "variantStocks"));
+        if (variants != null) {
+            List<VariantStockRequest> out = new ArrayList<>();
+            for (String v : variants) {
+                String[] parts = v.split(":", -1);
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("variantStocks entry must be color:size:quantity, got '" + v + "'");
+                }
+                VariantStockRequest vs = new VariantStockRequest();
+                vs.setColor(parts[0]);
+                vs.setSize(parts[1]);
+                try {
+                    vs.setQuantity(Integer.parseInt(parts[2].trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("variant quantity is not a number: '" + v + "'");
+                }
+                out.add(vs);
+            }
+            r.setVariantStocks(out);
+        }
+        return r;
+    }
+
+    /* ======================= EXPORT ======================= */
+
+    public void exportNdjson(OutputStream out) throws IOException {
+        // writeValue ปกติจะ flush ทุกแถว → ปิดไว้แล้ว flush เองทีละ batch
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        int flushEvery = Math.max(1, exportFlushEvery);
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+        gen.setRootValueSeparator(null);
+        try (Stream<Product> stream = streamAll()) {
+            Iterator<Product> it = stream.iterator();
+            int n = 0;
+            while (it.hasNext()) {
+                writer.writeValue(gen, toRow(it.next()));
+                gen.writeRaw('\n');
+                if (++n % flushEvery == 0) gen.flush();
+            }
+        }
+        gen.flush();
+    }
+
+    public void exportCsv(OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        w.write(String.join(",", CSV_COLUMNS));
+        w.write("\r\n");
+        try (Stream<Product> stream = streamAll()) {
+            Iterator<Product> it = stream.iterator();
+            while (it.hasNext()) {
+                Product p = it.next();
+                StringJoiner line = new StringJoiner(",");
+                line.add(Csv.escape(p.getId()));
+                line.add(Csv.escape(p.getName()));
+                line.add(Csv.escape(p.getDescription()));
+                line.add(p.getPrice() == null ? "" : p.getPrice().toPlainString());
+                line.add(Csv.escape(p.getCategory()));
+                line.add(Csv.escape(join(p.getImageUrls())));
+                line.add(Csv.escape(join(p.getAvailableColors())));
+                line.add(Csv.escape(join(p.getAvailableSizes())));
+                line.add(String.valueOf(p.getStockQuantity()));
+                StringJoiner variants = new StringJoiner("|");
+                if (p.getVariantStocks() != null) {
+                    for (VariantStock v : p.getVariantStocks()) {
+                        if (v == null) continue;
+                        variants.add(nz(v.getColor()) + ":" + nz(v.getSize()) + ":" + v.getQuantity());
+                    }
+                }
+                line.add(Csv.escape(variants.toString()));
+                w.write(line.toString());
+                w.write("\r\n");
+            }
+        }
+        w.flush();
+    }
+
+    private Stream<Product> streamAll() {
+        Query q = new Query().with(Sort.by(Sort.Direction.ASC, "_id"));
+        q.fields().exclude("imagePublicIds").exclude("imageVariants");
+        return mongoTemplate.stream(q, Product.class);
+    }
+
+    private static ProductImportRow toRow(Product p) {
+        ProductImportRow r = new ProductImportRow();
+        r.setId(p.getId());
+        r.setName(p.getName());
+        r.setDescription(p.getDescription());
+        r.setPrice(p.getPrice());
+        r.setCategory(p.getCategory());
+        r.setImageUrls(p.getImageUrls());
+        r.setAvailableColors(p.getAvailableColors());
+        r.setAvailableSizes(p.getAvailableSizes());
+        r.setStockQuantity(p.getStockQuantity());
+        if (p.getVariantStocks() != null) {
+            List<VariantStockRequest> vs = new ArrayList<>(p.getVariantStocks().size());
+            for (VariantStock v : p.getVariantStocks()) {
+                if (v == null) continue;
+                VariantStockRequest o = new VariantStockRequest();
+                o.setColor(v.getColor());
+                o.setSize(v.getSize());
+                o.setQuantity(v.getQuantity());
+                vs.add(o);
+            }
+            r.setVariantStocks(vs);
+        }
+        return r;
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static String cell(List<String> fields, Map<String, Integer> col, String name) {
+        Integer i = col.get(name);
+        if (i == null || i >= fields.size()) return null;
+        String v = fields.get(i);
+        return v.isEmpty() ? null : v;
+    }
+
+    private static List<String> list(String cell) {
+        if (cell == null) return null;
+        List<String> out = new ArrayList<>();
+        for (String s : cell.split("\\|")) {
+            if (!s.isBlank()) out.add(s.trim());
+        }
+        return out;
+    }
+
+    private static List<String> clean(List<String> list) {
+        if (list == null) return new ArrayList<>();
+        List<String> out = new ArrayList<>(list.size());
+        for (String s : list) {
+            if (s != null && !s.isBlank() && !out.contains(s.trim())) out.add(s.trim());
+        }
+        return out;
+    }
+
+    private static String join(List<String> list) {
+        return list == null ? "" : String.join("|", list);
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+}
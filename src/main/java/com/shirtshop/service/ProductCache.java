@@ -0,0 +1,241 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.Product;
+import com.shirtshop.entity.VariantStock;
+import com.shirtshop.repository.ProductRepository;
+import com.shirtshop.util.CategoryKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * แคชสินค้าแบบ read-through ในหน่วยความจำ
+ * - จำกัดตาม "น้ำหนัก" (ประมาณขนาดเป็น byte) ไม่ใช่จำนวน: สินค้าที่มีรูป/variant เยอะกินที่มากกว่า
+ * - TTL ต่อ entry; เกินงบแล้วเตะตัวที่ไม่ได้ถูกอ่านนานที่สุดออกก่อน
+ * - รายการตามหมวด เก็บเป็นลิสต์ id แล้ว resolve ผ่าน entry cache ตัวเดียวกัน
+ * - ต้อง invalidate จากทุกจุดที่เขียน products (ProductService, InventoryService)
+ *
+ * Product ที่คืนไปเป็น instance ที่แชร์กัน ห้ามแก้ไข (จะแก้ให้โหลดจาก repository)
+ */
+@Component
+public class ProductCache {
+
+    private static final class Entry {
+        final Product product;
+        final long weight;
+        final long expiresAt;
+        volatile long lastAccess;
+        Entry(Product product, long weight, long expiresAt) {
+            this.product = product; this.weight = weight; this.expiresAt = expiresAt;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    private record IdList(List<String> ids, long expiresAt) {}
+
+    private final ProductRepository productRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, IdList> lists = new ConcurrentHashMap<>();
+    private final AtomicLong totalWeight = new AtomicLong();
+    /** เพิ่มทุกครั้งที่ invalidate: โหลดที่เริ่มก่อน invalidate จะไม่ถูกใส่ลงแคช (กันค่าเก่าย้อนกลับมา) */
+    private final AtomicLong version = new AtomicLong();
+
+    private final long maxWeight;
+    private final long ttlMs;
+    private final long listTtlMs;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ProductCache(
+            ProductRepository productRepository,
+            MeterRegistry registry,
+            @Value("${app.products.cache.max-weight-bytes:16777216}") long maxWeight,
+            @Value("${app.products.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${app.products.cache.list-ttl-seconds:60}") long listTtlSeconds
+    ) {
+        this.productRepository = productRepository;
+        this.maxWeight = Math.max(1024, maxWeight);
+        this.ttlMs = ttlSeconds * 1000L;
+        this.listTtlMs = listTtlSeconds * 1000L;
+
+        this.hits = registry.counter("cache.gets", "cache", "products", "result", "hit");
+        this.misses = registry.counter("cache.gets", "cache", "products", "result", "miss");
+        this.evictions = registry.counter("cache.evictions", "cache", "products");
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", "products").register(registry);
+        Gauge.builder("cache.weight", totalWeight, AtomicLong::get).tag("cache", "products")
+                .baseUnit("bytes").register(registry);
+    }
+
+    /** @return null ถ้าไม่มีสินค้านี้ */
+    public Product get(String id) {
+        if (id == null) return null;
+        Product cached = lookup(id);
+        if (cached != null) return cached;
+
+        long v = version.get();
+        Product loaded = productRepository.findById(id).orElse(null);
+        if (loaded != null) put(loaded, v);
+        return loaded;
+    }
+
+    /** resolve หลาย id (คงลำดับเดิม) — ตัวที่ไม่อยู่ในแคชโหลดด้วย query เดียว */
+    public List<Product> getAll(List<String> ids) {
+        Map<String, Product> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Product p = lookup(id);
+            if (p != null) found.put(id, p); else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            long v = version.get();
+            for (Product p : productRepository.findAllById(missing)) {
+                put(p, v);
+                found.put(p.getId(), p);
+            }
+        }
+        List<Product> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Product p = found.get(id);
+            if (p != null) out.add(p);
+        }
+        return out;
+    }
+
+    public List<Product> byCategory(String category) {
+        String normalized = CategoryKeys.normalize(category);
+        if (normalized == null) return List.of();
+        return resolveList(categoryKey(category), () -> productRepository.findByCategoryKey(normalized));
+    }
+
+    /* ---------- invalidation ---------- */
+
+    public void invalidate(String id) {
+        if (id == null) return;
+        version.incrementAndGet();
+        Entry e = entries.remove(id);
+        if (e != null) totalWeight.addAndGet(-e.weight);
+    }
+
+    public void invalidateCategory(String category) {
+        version.incrementAndGet();
+        lists.remove(categoryKey(category));
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        lists.clear();
+        entries.clear();
+        totalWeight.set(0);
+    }
+
+    /* ---------- internals ---------- */
+
+    private Product lookup(String id) {
+        Entry e = entries.get(id);
+        if (e != null) {
+            if (System.currentTimeMillis() < e.expiresAt) {
+                e.lastAccess = System.nanoTime();
+                hits.increment();
+                return e.product;
+            }
+            if (entries.remove(id, e)) {
+                totalWeight.addAndGet(-e.weight);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private List<Product> resolveList(String key, java.util.function.Supplier<List<Product>> loader) {
+        IdList list = lists.get(key);
+        if (list != null && System.currentTimeMillis() < list.expiresAt()) {
+            return getAll(list.ids());
+        }
+        long v = version.get();
+        List<Product> loaded = loader.get();
+        List<String> ids = new ArrayList<>(loaded.size());
+        for (Product p : loaded) {
+            put(p, v);
+            ids.add(p.getId());
+        }
+        if (version.get() == v) {
+            lists.put(key, new IdList(List.copyOf(ids), System.currentTimeMillis() + listTtlMs));
+        }
+        return loaded;
+    }
+
+    private void put(Product p, long loadedAtVersion) {
+        if (p == null || p.getId() == null || version.get() != loadedAtVersion) return;
+        long w = weigh(p);
+        if (w > maxWeight / 4) return; // ก้อนใหญ่ผิดปกติ ไม่แคช
+        Entry old = entries.put(p.getId(), new Entry(p, w, System.currentTimeMillis() + ttlMs));
+        long total = totalWeight.addAndGet(old == null ? w : w - old.weight);
+        if (total > maxWeight) evict();
+    }
+
+    /** ทิ้งตัวหมดอายุก่อน ถ้ายังเกินงบให้ทิ้งตัวที่อ่านล่าสุดนานที่สุดจนเหลือ ~90% */
+    private synchronized void evict() {
+        if (totalWeight.get() <= maxWeight) return;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Entry> en : entries.entrySet()) {
+            Entry e = en.getValue();
+            if (now >= e.expiresAt && entries.remove(en.getKey(), e)) {
+                totalWeight.addAndGet(-e.weight);
+                evictions.increment();
+            }
+        }
+
+        long target = maxWeight - maxWeight / 10;
+        if (totalWeight.get() <= target) return;
+
+        List<Map.Entry<String, Entry>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort(Comparator.comparingLong(en -> en.getValue().lastAccess));
+        for (Map.Entry<String, Entry> en : byAge) {
+            if (totalWeight.get() <= target) break;
+            if (entries.remove(en.getKey(), en.getValue())) {
+                totalWeight.addAndGet(-en.getValue().weight);
+                evictions.increment();
+            }
+        }
+    }
+
+    /** ประมาณขนาดใน heap แบบหยาบ ๆ (header + String ~ 2 byte/ตัวอักษร) */
+    private static long weigh(Product p) {
+        long w = 160;
+        w += text(p.getName()) + text(p.getDescription()) + text(p.getCategory());
+        w += texts(p.getImageUrls()) + texts(p.getImagePublicIds());
+        w += texts(p.getAvailableColors()) + texts(p.getAvailableSizes());
+        if (p.getVariantStocks() != null) {
+            for (VariantStock v : p.getVariantStocks()) {
+                w += 32 + (v == null ? 0 : text(v.getColor()) + text(v.getSize()));
+            }
+        }
+        return w;
+    }
+
+    private static long text(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static long texts(List<String> list) {
+        if (list == null) return 0;
+        long w = 24;
+        for (String s : list) w += 8 + text(s);
+        return w;
+    }
+
+    private static String categoryKey(String category) {
+        String key = CategoryKeys.normalize(category);
+        return "cat:" + (key == null ? "" : key);
+    }
+}
@@ -0,0 +1,248 @@
+package com.shirtshop.service;
+
+import com.shirtshop.dto.FacetCount;
+import com.shirtshop.dto.ProductCardResponse;
+import com.shirtshop.dto.ProductFilterResponse;
+import com.shirtshop.entity.Product;
+import com.shirtshop.mapper.ProductMapper;
+import com.shirtshop.util.CategoryKeys;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * กรองสินค้าตาม category / สี / ไซส์ / ช่วงราคา / มีของ พร้อมนับ facet ใน aggregation เดียว ($facet)
+ * - facet แบบ disjunctive: แต่ละมิตินับด้วยตัวกรองทุกตัว "ยกเว้นมิติของตัวเอง"
+ *   (เลือกสี Black แล้ว facet สียังเห็นสีอื่นให้เลือกเพิ่ม) ส่วน items/total ใช้ตัวกรองครบทุกตัว
+ * - $match ด้านบน = $or ของตัวกรองของแต่ละ facet ใช้ index (categoryKey, variantStocks.color,
+ *   variantStocks.size) ตัดชุดข้อมูลก่อน (ถ้ามีมิติไหนไม่ถูกกรองเลย ต้องอ่านทุกตัวอยู่แล้ว)
+ * - price เก็บเป็น string (BigDecimal ของ Spring Data) → เทียบช่วงราคาด้วย $convert เป็น decimal
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductFilterService {
+
+    private static final String PRODUCTS_COLLECTION = "products";
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductMapper productMapper;
+
+    @Value("${app.products.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.products.page.max-size:100}")
+    private int maxPageSize;
+
+    @SuppressWarnings("unchecked")
+    public ProductFilterResponse filter(
+            List<String> categories,
+            List<String> colors,
+            List<String> sizes,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            boolean inStock,
+            int page,
+            Integer size
+    ) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        int pageNo = Math.max(0, page);
+
+        Document all = buildMatch(categories, colors, sizes, minPrice, maxPrice, inStock);
+        Document exceptCategory = buildMatch(null, colors, sizes, minPrice, maxPrice, inStock);
+        Document exceptColor = buildMatch(categories, null, sizes, minPrice, maxPrice, inStock);
+        Document exceptSize = buildMatch(categories, colors, null, minPrice, maxPrice, inStock);
+        Document exceptPrice = buildMatch(categories, colors, sizes, null, null, inStock);
+
+        List<Document> pipeline = new ArrayList<>();
+        Document prefilter = union(List.of(exceptCategory, exceptColor, exceptSize, exceptPrice));
+        if (!prefilter.isEmpty()) {
+            pipeline.add(new Document("$match", prefilter));
+        }
+
+        Document facet = new Document()
+                .append("items", stages(all,
+                        new Document("$sort", new Document("createdAt", -1).append("_id", -1)),
+                        new Document("$skip", (long) pageNo * pageSize),
+                        new Document("$limit", pageSize),
+                        new Document("$project", new Document("name", 1)
+                                .append("price", 1)
+                                .append("category", 1)
+                                .append("stockQuantity", 1)
+                                .append("createdAt", 1)
+                                .append("imageUrls", new Document("$slice", List.of("$imageUrls", 1)))
+                                .append("imageVariants", new Document("$slice", List.of("$imageVariants", 1))))
+                ))
+                .append("total", stages(all, new Document("$count", "n")))
+                .append("categories", stages(exceptCategory,
+                        new Document("$group", new Document("_id", "$categoryKey")
+                                .append("name", new Document("$first", "$category"))
+                                .append("count", new Document("$sum", 1))),
+                        new Document("$sort", new Document("count", -1).append("_id", 1))
+                ))
+                .append("colors", variantFacet("color", exceptColor, null, sizes, inStock))
+                .append("sizes", variantFacet("size", exceptSize, colors, null, inStock))
+                .append("price", stages(exceptPrice,
+                        new Document("$group", new Document("_id", null)
+                                .append("min", new Document("$min", priceExpr()))
+                                .append("max", new Document("$max", priceExpr())))
+                ));
+        pipeline.add(new Document("$facet", facet));
+
+        Document result = mongoTemplate.getCollection(PRODUCTS_COLLECTION)
+                .aggregate(pipeline)
+                .first();
+        if (result == null) result = new Document();
+
+        List<ProductCardResponse> content = new ArrayList<>();
+        for (Document d : (List<Document>) result.getOrDefault("items", List.of())) {
+            Product p = mongoTemplate.getConverter().read(Product.class, d);
+            content.add(productMapper.toCard(p));
+        }
+
+        List<Document> total = (List<Document>) result.getOrDefault("total", List.of());
+        long totalElements = total.isEmpty() ? 0 : ((Number) total.get(0).get("n")).longValue();
+
+        List<Document> price = (List<Document>) result.getOrDefault("price", List.of());
+        BigDecimal min = price.isEmpty() ? null : decimal(price.get(0).get("min"));
+        BigDecimal max = price.isEmpty() ? null : decimal(price.get(0).get("max"));
+
+        return new ProductFilterResponse(
+                content, pageNo, pageSize, totalElements,
+                categoryCounts((List<Document>) result.getOrDefault("categories", List.of())),
+                counts((List<Document>) result.getOrDefault("colors", List.of())),
+                counts((List<Document>) result.getOrDefault("sizes", List.of())),
+                min, max
+        );
+    }
+
+    /* ---------- pipeline parts ---------- */
+
+    private static Document buildMatch(
+            List<String> categories, List<String> colors, List<String> sizes,
+            BigDecimal minPrice, BigDecimal maxPrice, boolean inStock
+    ) {
+        Document match = new Document();
+        if (notEmpty(categories)) {
+            List<String> keys = categories.stream().map(CategoryKeys::normalize).filter(Objects::nonNull).toList();
+            match.append("categoryKey", new Document("$in", keys));
+        }
+
+        // สี/ไซส์/มีของ ต้องเป็น variant เดียวกัน (ขาวไซส์ M ที่มีของ ไม่ใช่ ขาว + M คนละตัว)
+        Document variant = variantConditions(colors, sizes, inStock);
+        if (!variant.isEmpty()) {
+            match.append("variantStocks", new Document("$elemMatch", variant));
+        } else if (inStock) {
+            match.append("stockQuantity", new Document("$gt", 0));
+        }
+
+        List<Document> priceRange = new ArrayList<>();
+        if (minPrice != null) {
+            priceRange.add(new Document("$gte", List.of(priceExpr(), new Decimal128(minPrice))));
+        }
+        if (maxPrice != null) {
+            priceRange.add(new Document("$lte", List.of(priceExpr(), new Decimal128(maxPrice))));
+        }
+        if (!priceRange.isEmpty()) {
+            match.append("$expr", new Document("$and", priceRange));
+        }
+        return match;
+    }
+
+    /** sub-pipeline ของ $facet: $match ของ facet นั้น (ถ้ามี) ตามด้วย stage ที่เหลือ */
+    private static List<Document> stages(Document match, Document... rest) {
+        List<Document> out = new ArrayList<>(rest.length + 1);
+        if (!match.isEmpty()) out.add(new Document("$match", match));
+        out.addAll(List.of(rest));
+        return out;
+    }
+
+    /** ชุดที่ facet ใดก็ตามต้องใช้ ({} = ต้องอ่านทุกตัว) */
+    private static Document union(List<Document> matches) {
+        Set<Document> distinct = new LinkedHashSet<>();
+        for (Document m : matches) {
+            if (m.isEmpty()) return new Document();
+            distinct.add(m);
+        }
+        return distinct.size() == 1 ? distinct.iterator().next() : new Document("$or", new ArrayList<>(distinct));
+    }
+
+    /**
+     * นับจำนวนสินค้า (ไม่ใช่จำนวน variant) ต่อค่าสี/ไซส์
+     * colors/sizes ที่ส่งมาไม่รวมมิติของ facet เอง; variant ที่นับต้องผ่านเงื่อนไขของมิติอื่นด้วย
+     */
+    private static List<Document> variantFacet(String field, Document match,
+                                               List<String> colors, List<String> sizes, boolean inStock) {
+        List<Document> stages = stages(match, new Document("$unwind", "$variantStocks"));
+        Document variant = variantConditions(colors, sizes, inStock);
+        if (inStock) variant.put("quantity", new Document("$gt", 0));
+        if (!variant.isEmpty()) {
+            Document prefixed = new Document();
+            variant.forEach((k, v) -> prefixed.append("variantStocks." + k, v));
+            stages.add(new Document("$match", prefixed));
+        }
+        stages.add(new Document("$group", new Document("_id",
+                new Document("v", "$variantStocks." + field).append("p", "$_id"))));
+        stages.add(new Document("$group", new Document("_id", "$_id.v").append("count", new Document("$sum", 1))));
+        stages.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+        return stages;
+    }
+
+    private static Document variantConditions(List<String> colors, List<String> sizes, boolean inStock) {
+        Document d = new Document();
+        if (notEmpty(colors)) d.append("color", new Document("$in", colors));
+        if (notEmpty(sizes)) d.append("size", new Document("$in", sizes));
+        if (inStock && !d.isEmpty()) d.append("quantity", new Document("$gt", 0));
+        return d;
+    }
+
+    private static Document priceExpr() {
+        return new Document("$convert", new Document("input", "$price")
+                .append("to", "decimal")
+                .append("onError", null)
+                .append("onNull", null));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static List<FacetCount> counts(List<Document> docs) {
+        List<FacetCount> out = new ArrayList<>(docs.size());
+        for (Document d : docs) {
+            Object v = d.get("_id");
+            if (v == null || v.toString().isBlank()) continue;
+            out.add(new FacetCount(v.toString(), ((Number) d.get("count")).longValue()));
+        }
+        return out;
+    }
+
+    /** จัดกลุ่มด้วย categoryKey แต่แสดงชื่อหมวดตามที่บันทึกไว้ */
+    private static List<FacetCount> categoryCounts(List<Document> docs) {
+        List<FacetCount> out = new ArrayList<>(docs.size());
+        for (Document d : docs) {
+            if (d.get("_id") == null) continue;
+            Object name = d.get("name");
+            out.add(new FacetCount(name != null ? name.toString() : d.get("_id").toString(),
+                    ((Number) d.get("count")).longValue()));
+        }
+        return out;
+    }
+
+    private static BigDecimal decimal(Object v) {
+        if (v instanceof Decimal128 d) return d.bigDecimalValue();
+        if (v instanceof Number n) return new BigDecimal(n.toString());
+        return null;
+    }
+
+    private static boolean notEmpty(List<String> list) {
+        return list != null && !list.isEmpty();
+    }
+}
@@ -0,0 +1,183 @@
+package com.shirtshop.service;
+
+import com.shirtshop.dto.TopProductResponse;
+import com.shirtshop.entity.Order;
+import com.shirtshop.entity.OrderItem;
+import com.shirtshop.entity.ProductSalesDaily;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * ตัวนับยอดขายต่อสินค้าแบบ bucket รายวัน
+ * - recordPaid() บวกยอดหลัง markPaid สำเร็จ, revertPaid() หักยอดคืนเมื่อออเดอร์ PAID ถูกปิด (ลง bucket ของวัน paidAt)
+ * - ทำซ้ำได้: bucket จำ key ของออเดอร์ที่ลงไปแล้ว (applied) → retry ไม่นับซ้ำ
+ * - markPaid/close ตั้ง flag บน order ใน CAS เดียวกัน; บันทึกสำเร็จค่อยล้าง ถ้าล้ม reconcile() จะลองใหม่
+ * - top() รวม bucket ของช่วงวันที่ขอ (≤ 30 วัน × จำนวนสินค้าที่ขายได้) ไม่ต้องสแกน orders
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSalesService {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Bangkok");
+    private static final String PAID_FLAG = "salesPending";
+    private static final String REVERT_FLAG = "salesRevertPending";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    /** ไม่หยิบออเดอร์ที่เพิ่งเปลี่ยนสถานะ (request เดิมอาจกำลังบันทึกอยู่) */
+    @Value("${app.sales.reconcile-grace-ms:30000}")
+    private long reconcileGraceMs;
+
+    @Value("${app.sales.reconcile-batch-size:100}")
+    private int reconcileBatchSize;
+
+    @PostConstruct
+    void ensureIndexes() {
+        mongoTemplate.indexOps(ProductSalesDaily.class).ensureIndex(
+                new Index().on("day", Sort.Direction.ASC).named("day_1"));
+        // มีแค่ออเดอร์ที่ค้าง flag อยู่ใน index (ปกติแทบว่าง)
+        for (String flag : List.of(PAID_FLAG, REVERT_FLAG)) {
+            mongoTemplate.indexOps(Order.class).ensureIndex(new Index().on(flag, Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where(flag).is(true)))
+                    .named(flag + "_partial"));
+        }
+    }
+
+    public void recordPaid(Order order) {
+        apply(order, 1, order.getId(), PAID_FLAG);
+    }
+
+    public void revertPaid(Order order) {
+        apply(order, -1, order.getId() + ":void", REVERT_FLAG);
+    }
+
+    /** ลองใหม่ให้ออเดอร์ที่ flag ยังค้าง (บันทึกยอดล้มหลังเปลี่ยนสถานะสำเร็จ) */
+    @Scheduled(initialDelayString = "${app.sales.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${app.sales.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        retry(PAID_FLAG, false);
+        retry(REVERT_FLAG, true);
+    }
+
+    private void retry(String flag, boolean revert) {
+        Instant cutoff = Instant.now().minusMillis(reconcileGraceMs);
+        Query q = Query.query(Criteria.where(flag).is(true).and("updatedAt").lt(cutoff))
+                .limit(Math.max(1, reconcileBatchSize));
+        for (Order o : mongoTemplate.find(q, Order.class)) {
+            try {
+                if (revert) revertPaid(o);
+                else recordPaid(o);
+            } catch (RuntimeException e) {
+                log.warn("[ProductSales] retry {} failed for order {}: {}", flag, o.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * $inc ยอด × sign ลง bucket ของวัน paidAt แบบ idempotent ด้วย key แล้วล้าง flag บน order
+     * filter { _id, applied: {$ne: key} } — bucket ที่ลง key นี้ไปแล้วจะไม่ match แล้ว upsert ชน _id (11000) = ทำไปแล้ว
+     */
+    private void apply(Order order, int sign, String key, String flag) {
+        if (order == null || order.getId() == null) return;
+        if (order.getPaidAt() == null || order.getItems() == null || order.getItems().isEmpty()) {
+            clearFlag(order.getId(), flag);
+            return;
+        }
+        String day = LocalDate.ofInstant(order.getPaidAt(), ZONE).toString();
+
+        // รวมตาม productId ก่อน (สี/ไซส์ต่างกันนับรวมเป็นสินค้าเดียว)
+        Map<String, long[]> byProduct = new LinkedHashMap<>();
+        Map<String, String> names = new HashMap<>();
+        for (OrderItem it : order.getItems()) {
+            if (it == null || it.getProductId() == null || it.getQuantity() <= 0) continue;
+            long[] acc = byProduct.computeIfAbsent(it.getProductId(), k -> new long[2]);
+            acc[0] += it.getQuantity();
+            acc[1] += (long) it.getQuantity() * it.getUnitPrice();
+            if (it.getName() != null) names.put(it.getProductId(), it.getName());
+        }
+        if (byProduct.isEmpty()) {
+            clearFlag(order.getId(), flag);
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductSalesDaily.class);
+        byProduct.forEach((productId, acc) -> {
+            Update u = new Update()
+                    .inc("units", sign * acc[0])
+                    .inc("revenue", sign * acc[1])
+                    .push("applied", key)
+                    .setOnInsert("productId", productId)
+                    .setOnInsert("day", day);
+            String name = names.get(productId);
+            if (name != null && sign > 0) u.set("name", name);
+            bulk.upsert(Query.query(Criteria.where("_id").is(productId + ":" + day).and("applied").ne(key)), u);
+        });
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            boolean onlyAlreadyApplied = e.getErrors().stream().allMatch(err -> err.getCode() == DUPLICATE_KEY);
+            if (!onlyAlreadyApplied) throw e;
+        }
+        clearFlag(order.getId(), flag);
+    }
+
+    private void clearFlag(String orderId, String flag) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(orderId)), new Update().unset(flag), Order.class);
+    }
+
+    /** range: today | 7d | 30d (ค่าอื่น = today) */
+    public List<TopProductResponse> top(int limit, String range) {
+        LocalDate today = LocalDate.now(ZONE);
+        LocalDate from = switch (range == null ? "" : range.trim().toLowerCase(Locale.ROOT)) {
+            case "7d" -> today.minusDays(6);
+            case "30d" -> today.minusDays(29);
+            default -> today;
+        };
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("day",
+                        new Document("$gte", from.toString()).append("$lte", today.toString()))),
+                new Document("$sort", new Document("day", 1)),
+                new Document("$group", new Document("_id", "$productId")
+                        .append("name", new Document("$last", "$name"))
+                        .append("units", new Document("$sum", "$units"))
+                        .append("revenue", new Document("$sum", "$revenue"))),
+                new Document("$sort", new Document("units", -1).append("revenue", -1)),
+                new Document("$limit", Math.max(1, limit))
+        );
+
+        String collection = mongoTemplate.getCollectionName(ProductSalesDaily.class);
+        List<TopProductResponse> out = new ArrayList<>();
+        for (Document d : mongoTemplate.getCollection(collection).aggregate(pipeline)) {
+            out.add(TopProductResponse.builder()
+                    .id(d.getString("_id"))
+                    .name(d.getString("name"))
+                    .units(((Number) d.get("units")).longValue())
+                    .revenue(BigDecimal.valueOf(((Number) d.get("revenue")).longValue()))
+                    .build());
+        }
+        return out;
+    }
+}
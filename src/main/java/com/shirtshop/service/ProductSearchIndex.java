@@ -0,0 +1,328 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Inverted index สำหรับค้นหาสินค้าในหน่วยความจำ (name, description, category, สี)
+ * - ตัดคำเป็น character 3-gram ต่อ "คำ" → ภาษาไทยที่ไม่เว้นวรรคก็ค้นกลางคำได้
+ *   คำที่สั้นกว่า 3 ตัวอักษร (เช่น xl, s) เก็บทั้งคำเป็น token
+ * - จัดอันดับด้วย idf × น้ำหนักฟิลด์ (name > category > สี > description) + โบนัสถ้าชื่อมีคำค้นตรง ๆ
+ * - อัปเดตทีละตัวจาก ProductService และสร้างใหม่เป็นรอบ ๆ จาก cursor ของ Mongo
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int F_NAME = 1, F_CATEGORY = 2, F_COLOR = 4, F_DESC = 8;
+    private static final int MASK_BITS = 4;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.search.max-description-chars:300}")
+    private int maxDescriptionChars;
+
+    /** สัดส่วน gram ของคำค้นที่เอกสารต้องมีอย่างน้อย */
+    @Value("${app.search.min-should-match:0.6}")
+    private double minShouldMatch;
+
+    private record Doc(String productId, String name, String[] tokens) {}
+
+    /** posting = (docId << 4) | fieldMask — ไม่เรียงลำดับ ลบแบบสลับตัวท้าย */
+    private static final class Postings {
+        int[] items = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        void removeDoc(int docId) {
+            for (int i = 0; i < size; i++) {
+                if ((items[i] >>> MASK_BITS) == docId) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Index {
+        final Map<String, Postings> postings = new HashMap<>();
+        final List<Doc> docs = new ArrayList<>();            // docId → Doc (null = ถูกลบ)
+        final Map<String, Integer> byProductId = new HashMap<>();
+    }
+
+    /** การแก้ไขที่เกิดระหว่าง rebuild (product == null = ลบ) ต้อง replay ลง index ใหม่ก่อนสลับ */
+    private record PendingOp(String productId, Product product) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();           // guarded by lock
+    private List<PendingOp> rebuildLog;          // guarded by lock
+    private volatile boolean ready;
+
+    /* ---------- update ---------- */
+
+    public void index(Product p) {
+        if (p == null || p.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            remove(index, p.getId());
+            add(index, p);
+            if (rebuildLog != null) rebuildLog.add(new PendingOp(p.getId(), p));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        if (productId == null) return;
+        lock.writeLock().lock();
+        try {
+            remove(index, productId);
+            if (rebuildLog != null) rebuildLog.add(new PendingOp(productId, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** สร้าง index ใหม่จาก cursor (ไม่โหลดทั้งคอลเลกชันเข้าหน่วยความจำพร้อมกัน) แล้วค่อยสลับ */
+    @Scheduled(initialDelayString = "${app.search.initial-delay-ms:0}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:1800000}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuildLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index fresh = new Index();
+        try {
+            Query q = new Query();
+            q.fields().include("name", "description", "category", "availableColors");
+            try (Stream<Product> stream = mongoTemplate.stream(q, Product.class)) {
+                stream.forEach(p -> add(fresh, p));
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuildLog = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("[ProductSearchIndex] rebuild failed: {}", e.getMessage(), e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (PendingOp op : rebuildLog) {
+                remove(fresh, op.productId());
+                if (op.product() != null) add(fresh, op.product());
+            }
+            rebuildLog = null;
+            index = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("[ProductSearchIndex] rebuilt: {} products, {} tokens", fresh.byProductId.size(), fresh.postings.size());
+    }
+
+    /* ---------- query ---------- */
+
+    /**
+     * @return productId เรียงตามคะแนน หรือ null ถ้า index ยังไม่พร้อม (ให้ผู้เรียก fallback)
+     */
+    public List<String> search(String query, int limit) {
+        if (!ready) return null;
+        String q = normalize(query);
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(q, tokens);
+        if (tokens.isEmpty()) {
+            return q.isEmpty() ? List.of() : scanNames(q, limit);
+        }
+
+        List<String> ranked = ranked(tokens, q, limit);
+        // คำค้นสั้นกว่า GRAM (เช่น "sh") index มีแค่คำสั้นทั้งคำ → เติมจากชื่อที่มีคำค้นอยู่ (แบบ contains เดิม)
+        if (maxWordLength(q) < GRAM && ranked.size() < limit) {
+            Set<String> merged = new LinkedHashSet<>(ranked);
+            for (String id : scanNames(q, limit)) {
+                if (merged.size() >= limit) break;
+                merged.add(id);
+            }
+            return new ArrayList<>(merged);
+        }
+        return ranked;
+    }
+
+    private List<String> ranked(Set<String> tokens, String q, int limit) {
+        lock.readLock().lock();
+        try {
+            Index idx = index;
+            int docCount = idx.docs.size();
+            int live = Math.max(1, idx.byProductId.size());
+            float[] score = new float[docCount];
+            int[] hits = new int[docCount];
+            List<Integer> touched = new ArrayList<>();
+
+            for (String t : tokens) {
+                Postings p = idx.postings.get(t);
+                if (p == null) continue;
+                float idf = (float) Math.log(1.0 + (double) live / p.size);
+                for (int i = 0; i < p.size; i++) {
+                    int doc = p.items[i] >>> MASK_BITS;
+                    if (hits[doc]++ == 0) touched.add(doc);
+                    score[doc] += idf * fieldWeight(p.items[i] & ((1 << MASK_BITS) - 1));
+                }
+            }
+
+            int need = Math.max(1, (int) Math.ceil(tokens.size() * minShouldMatch));
+            List<Integer> matched = new ArrayList<>();
+            for (int doc : touched) {
+                Doc d = idx.docs.get(doc);
+                if (d == null || hits[doc] < need) continue;
+                // ครอบคลุมคำค้นมากกว่าได้เปรียบ, ชื่อที่มีคำค้นทั้งคำได้โบนัส
+                score[doc] *= (float) hits[doc] / tokens.size();
+                if (d.name().startsWith(q)) score[doc] += 10f;
+                else if (d.name().contains(q)) score[doc] += 5f;
+                matched.add(doc);
+            }
+
+            matched.sort((a, b) -> Float.compare(score[b], score[a]));
+            List<String> out = new ArrayList<>(Math.min(limit, matched.size()));
+            for (int i = 0; i < matched.size() && out.size() < limit; i++) {
+                out.add(idx.docs.get(matched.get(i)).productId());
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** คำค้นสั้น: ไล่ชื่อที่ normalize แล้ว (ขึ้นต้นด้วยคำค้นมาก่อน) */
+    private List<String> scanNames(String q, int limit) {
+        lock.readLock().lock();
+        try {
+            List<String> prefix = new ArrayList<>();
+            List<String> infix = new ArrayList<>();
+            for (Doc d : index.docs) {
+                if (d == null) continue;
+                if (d.name().startsWith(q)) prefix.add(d.productId());
+                else if (d.name().contains(q)) infix.add(d.productId());
+                if (prefix.size() >= limit) break;
+            }
+            prefix.addAll(infix);
+            return prefix.size() > limit ? new ArrayList<>(prefix.subList(0, limit)) : prefix;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private void add(Index idx, Product p) {
+        Map<String, Integer> masks = new HashMap<>();
+        collect(p.getName(), F_NAME, masks);
+        collect(p.getCategory(), F_CATEGORY, masks);
+        if (p.getAvailableColors() != null) {
+            for (String c : p.getAvailableColors()) collect(c, F_COLOR, masks);
+        }
+        String desc = p.getDescription();
+        if (desc != null && desc.length() > maxDescriptionChars) {
+            desc = desc.substring(0, maxDescriptionChars);
+        }
+        collect(desc, F_DESC, masks);
+
+        int docId = idx.docs.size();
+        idx.docs.add(new Doc(p.getId(), normalize(p.getName()), masks.keySet().toArray(String[]::new)));
+        idx.byProductId.put(p.getId(), docId);
+        for (Map.Entry<String, Integer> e : masks.entrySet()) {
+            idx.postings.computeIfAbsent(e.getKey(), k -> new Postings()).add((docId << MASK_BITS) | e.getValue());
+        }
+    }
+
+    private static void remove(Index idx, String productId) {
+        Integer docId = idx.byProductId.remove(productId);
+        if (docId == null) return;
+        Doc d = idx.docs.get(docId);
+        idx.docs.set(docId, null);
+        if (d == null) return;
+        for (String t : d.tokens()) {
+            Postings p = idx.postings.get(t);
+            if (p == null) continue;
+            p.removeDoc(docId);
+            if (p.size == 0) idx.postings.remove(t);
+        }
+    }
+
+    private static void collect(String text, int field, Map<String, Integer> masks) {
+        if (text == null || text.isBlank()) return;
+        Set<String> tokens = new HashSet<>();
+        tokenize(normalize(text), tokens);
+        for (String t : tokens) masks.merge(t, field, (a, b) -> a | b);
+    }
+
+    /** แยกเป็นคำตามตัวที่ไม่ใช่ตัวอักษร/ตัวเลข (สระ/วรรณยุกต์ไทยนับเป็นตัวอักษร) แล้วตัด 3-gram ต่อคำ */
+    private static void tokenize(String s, Collection<String> out) {
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && isWordChar(s.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                String w = s.substring(start, i);
+                if (w.length() < GRAM) {
+                    if (w.length() > 1) out.add(w);
+                } else {
+                    for (int j = 0; j + GRAM <= w.length(); j++) out.add(w.substring(j, j + GRAM));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static int maxWordLength(String s) {
+        int max = 0, run = 0;
+        for (int i = 0; i < s.length(); i++) {
+            run = isWordChar(s.charAt(i)) ? run + 1 : 0;
+            max = Math.max(max, run);
+        }
+        return max;
+    }
+
+    private static boolean isWordChar(char c) {
+        if (Character.isLetterOrDigit(c)) return true;
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        return Normalizer.normalize(s, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static float fieldWeight(int mask) {
+        float w = 0f;
+        if ((mask & F_NAME) != 0) w += 3f;
+        if ((mask & F_CATEGORY) != 0) w += 2f;
+        if ((mask & F_COLOR) != 0) w += 1.5f;
+        if ((mask & F_DESC) != 0) w += 1f;
+        return w;
+    }
+}
@@ -3,64 +3,137 @@ package com.shirtshop.service;
 import com.shirtshop.dto.*;
 import com.shirtshop.entity.Product;
 import com.shirtshop.entity.VariantStock;
+import com.shirtshop.exception.ApiException;
 import com.shirtshop.exception.ResourceNotFoundException;
+import com.shirtshop.mapper.ProductMapper;
 import com.shirtshop.repository.ProductRepository;
+import com.shirtshop.util.CategoryKeys;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
     private final ProductRepository productRepository;
-    private final CloudinaryService cloudinaryService; // Inject Service สำหรับอัปโหลด
+    private final ImageUploadPipeline imageUploads; // อัปโหลดรูปขึ้น Cloudinary แบบขนาน
+    private final ImageDeletionOutbox deletionOutbox; // ลบรูปบน Cloudinary เบื้องหลัง
+    private final ProductCache productCache;
+    private final VersionStamps versionStamps;
+    private final ProductSearchIndex searchIndex;
+    private final CategoryDirectory categoryDirectory;
+    private final ProductSalesService productSalesService;
+    private final ProductMapper productMapper;
+    private final ImageVariantFactory imageVariantFactory;
+
+    @Value("${app.products.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.products.page.max-size:100}")
+    private int maxPageSize;
+
+    /** ตัวเลือกการเรียงของ listCards (price ยังเรียงไม่ได้: BigDecimal ถูกเก็บเป็น string ใน Mongo) */
+    private enum CardSort {
+        NEWEST("createdAt", Sort.Direction.DESC),
+        OLDEST("createdAt", Sort.Direction.ASC),
+        NAME("name", Sort.Direction.ASC);
+
+        final String field;
+        final Sort.Direction direction;
+        CardSort(String field, Sort.Direction direction) {
+            this.field = field; this.direction = direction;
+        }
+    }
 
     /**
-     * ดึงข้อมูลสินค้าทั้งหมด
+     * ดึงข้อมูลสินค้าทั้งหมดแบบ cursor (ไม่สร้าง List ทั้งก้อน — หน้ารายการใหม่ใช้ listCards)
+     * ผู้เรียกต้องปิด Stream (JsonArrayStreamer ปิดให้)
      */
-    public List<ProductResponse> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        return products.stream()
-                .map(this::mapToProductResponse)
-                .collect(Collectors.toList());
+    public Stream<ProductResponse> streamAllProducts() {
+        return productRepository.streamAllBy().map(productMapper::toResponse);
     }
 
+    /**
+     * รายการสินค้าแบบการ์ด แบ่งหน้าด้วย cursor (keyset) แทน skip/limit
+     * cursor = ค่าของ (field, _id) ของแถวสุดท้ายในหน้าก่อน เข้ารหัส base64url
+     */
+    public CursorPage<ProductCardResponse> listCards(String cursor, Integer size, String sort) {
+        CardSort cardSort = parseSort(sort);
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+
+        Object afterValue = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor, cardSort);
+            afterId = parts[2];
+            afterValue = parseCursorValue(cardSort, parts[1]);
+        }
+
+        // ขอเกิน 1 แถวเพื่อรู้ว่ามีหน้าถัดไปไหม
+        List<Product> rows = productRepository.findCardPage(
+                cardSort.field, cardSort.direction, afterValue, afterId, pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) rows = rows.subList(0, pageSize);
+
+        String nextCursor = hasNext ? encodeCursor(cardSort, rows.get(rows.size() - 1)) : null;
+        List<ProductCardResponse> content = rows.stream().map(productMapper::toCard).toList();
+        return new CursorPage<>(content, pageSize, nextCursor, hasNext);
+    }
+
+    /** อ่านผ่าน ProductCache — ห้ามแก้ไข Product ที่ได้ไป (ถ้าจะแก้ให้โหลดจาก repository) */
     public Product getById(String id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        Product p = productCache.get(id);
+        if (p == null) {
+            throw new RuntimeException("Product not found with id: " + id);
+        }
+        return p;
     }
 
-    public List<Product> searchProducts(String query) {
-        return productRepository.findByNameContainingIgnoreCase(query);
+    /** ค้นจาก ProductSearchIndex (ชื่อ/รายละเอียด/หมวด/สี) เรียงตามความเกี่ยวข้อง */
+    public List<Product> searchProducts(String query, int limit) {
+        if (query == null || query.isBlank()) return List.of();
+        int max = Math.min(Math.max(1, limit), maxPageSize);
+
+        List<String> ids = searchIndex.search(query, max);
+        if (ids == null) {
+            // index ยังสร้างไม่เสร็จ (เพิ่ง start) → ใช้ regex บนชื่อแบบเดิมไปก่อน
+            return productRepository.findByNameContainingIgnoreCase(query);
+        }
+        return productCache.getAll(ids);
     }
 
     public void deleteProduct(String productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
-        if (product.getImagePublicIds() != null && !product.getImagePublicIds().isEmpty()) {
-            for (String publicId : product.getImagePublicIds()) {
-                cloudinaryService.deleteFile(publicId);
-            }
-        }
         productRepository.delete(product);
+        deletionOutbox.enqueue(product.getImagePublicIds()); // ลบรูปจริงเบื้องหลัง
+        searchIndex.remove(productId);
+
+        productCache.invalidate(productId);
+        productCache.invalidateCategory(product.getCategory());
+        categoryDirectory.invalidate();
+        versionStamps.bump(VersionStamps.PRODUCTS);
     }
 
     public ProductResponse createProduct(ProductRequest productRequest, List<MultipartFile> images) {
-        List<String> imageUrls = new ArrayList<>();
-        List<String> imagePublicIds = new ArrayList<>();
-        if (images != null && !images.isEmpty()) {
-            for (MultipartFile image : images) {
-                CloudinaryUploadResponse resp = cloudinaryService.uploadFile(image, "products");
-                imageUrls.add(resp.getUrl());
-                imagePublicIds.add(resp.getPublicId());
-            }
+        // อัปโหลดพร้อมกัน (ลำดับรูปคงเดิม) — ล้มรูปเดียวจะลบรูปที่ขึ้นไปแล้วทิ้งทั้งหมด
+        List<CloudinaryUploadResponse> uploaded = imageUploads.uploadAll(images, "products");
+        List<String> imageUrls = new ArrayList<>(uploaded.size());
+        List<String> imagePublicIds = new ArrayList<>(uploaded.size());
+        for (CloudinaryUploadResponse resp : uploaded) {
+            imageUrls.add(resp.getUrl());
+            imagePublicIds.add(resp.getPublicId());
         }
 
         Product p = new Product();
@@ -68,10 +141,12 @@ public class ProductService {
         p.setDescription(productRequest.getDescription());
         p.setPrice(productRequest.getPrice());
         p.setCategory(productRequest.getCategory());
+        p.setCategoryKey(CategoryKeys.normalize(productRequest.getCategory()));
         p.setAvailableColors(productRequest.getAvailableColors());
         p.setAvailableSizes(productRequest.getAvailableSizes());
         p.setImageUrls(imageUrls);
         p.setImagePublicIds(imagePublicIds);
+        p.setImageVariants(imageVariantFactory.of(imageUrls));
 
         // variantStocks
         if (productRequest.getVariantStocks() != null) {
@@ -95,49 +170,19 @@ public class ProductService {
         p.setCreatedAt(LocalDateTime.now());
         p.setUpdatedAt(LocalDateTime.now());
 
-        Product saved = productRepository.save(p);
-        return mapToProductResponse(saved);
-    }
-
-    private ProductResponse mapToProductResponse(Product product) {
-        ProductResponse r = new ProductResponse();
-        r.setId(product.getId());
-        r.setName(product.getName());
-        r.setDescription(product.getDescription());
-        r.setPrice(product.getPrice());
-        r.setCategory(product.getCategory());
-        r.setStockQuantity(product.getStockQuantity());
-        r.setCreatedAt(product.getCreatedAt());
-
-        // รูปภาพ
-        r.setImageUrls(product.getImageUrls() != null ? product.getImageUrls() : Collections.emptyList());
-        if (product.getImagePublicIds() != null && product.getImageUrls() != null) {
-            List<ImageInfo> imgs = new ArrayList<>();
-            for (int i = 0; i < Math.min(product.getImagePublicIds().size(), product.getImageUrls().size()); i++) {
-                imgs.add(new ImageInfo(product.getImagePublicIds().get(i), product.getImageUrls().get(i)));
-            }
-            r.setImages(imgs);
-        } else {
-            r.setImages(Collections.emptyList());
+        Product saved;
+        try {
+            saved = productRepository.save(p);
+        } catch (RuntimeException e) {
+            deletionOutbox.enqueue(imagePublicIds); // บันทึกไม่สำเร็จ → ไม่ทิ้งรูปกำพร้าไว้บน Cloudinary
+            throw e;
         }
+        searchIndex.index(saved);
 
-        r.setAvailableColors(product.getAvailableColors() != null ? product.getAvailableColors() : Collections.emptyList());
-        r.setAvailableSizes(product.getAvailableSizes() != null ? product.getAvailableSizes() : Collections.emptyList());
-
-        // Variant Stocks
-        if (product.getVariantStocks() != null) {
-            List<VariantStockResponse> vs = product.getVariantStocks().stream().map(v -> {
-                VariantStockResponse o = new VariantStockResponse();
-                o.setColor(v.getColor());
-                o.setSize(v.getSize());
-                o.setQuantity(v.getQuantity());
-                return o;
-            }).collect(Collectors.toList());
-            r.setVariantStocks(vs);
-        } else {
-            r.setVariantStocks(Collections.emptyList());
-        }
-        return r;
+        productCache.invalidateCategory(saved.getCategory());
+        categoryDirectory.invalidate();
+        versionStamps.bump(VersionStamps.PRODUCTS);
+        return productMapper.toResponse(saved);
     }
 
     public ProductResponse updateProduct(
@@ -148,24 +193,28 @@ public class ProductService {
     ) {
         Product p = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        String oldCategory = p.getCategory();
 
         // ฟิลด์ทั่วไป
         p.setName(productRequest.getName());
         p.setDescription(productRequest.getDescription());
         p.setPrice(productRequest.getPrice());
         p.setCategory(productRequest.getCategory());
+        p.setCategoryKey(CategoryKeys.normalize(productRequest.getCategory()));
         p.setAvailableColors(productRequest.getAvailableColors());
         p.setAvailableSizes(productRequest.getAvailableSizes());
 
-        // ลบรูปตาม publicId
+        // อัปโหลดรูปใหม่ก่อน (ขนาน + rollback ในตัว) เพื่อไม่ให้รูปเดิมหายถ้าอัปโหลดล้ม
+        List<CloudinaryUploadResponse> uploaded = imageUploads.uploadAll(newImages, "products");
+
+        // เอารูปออกจากสินค้า; ตัวไฟล์บน Cloudinary ลบผ่าน outbox หลังบันทึกสำเร็จ
+        List<String> removed = new ArrayList<>();
         if (removeImagePublicIds != null && !removeImagePublicIds.isEmpty()) {
-            for (String pid : removeImagePublicIds) {
-                cloudinaryService.deleteFile(pid);
-            }
             if (p.getImagePublicIds() != null && p.getImageUrls() != null) {
                 for (String pid : removeImagePublicIds) {
                     int idx = p.getImagePublicIds().indexOf(pid);
                     if (idx >= 0) {
+                        removed.add(pid);
                         p.getImagePublicIds().remove(idx);
                         if (idx < p.getImageUrls().size()) {
                             p.getImageUrls().remove(idx);
@@ -175,14 +224,11 @@ public class ProductService {
             }
         }
 
-        // อัปโหลดรูปใหม่
-        if (newImages != null && !newImages.isEmpty()) {
-            for (MultipartFile img : newImages) {
-                CloudinaryUploadResponse resp = cloudinaryService.uploadFile(img, "products");
-                ensureList(p);
-                p.getImagePublicIds().add(resp.getPublicId());
-                p.getImageUrls().add(resp.getUrl());
-            }
+        // ต่อท้ายรูปใหม่ตามลำดับที่ส่งมา
+        for (CloudinaryUploadResponse resp : uploaded) {
+            ensureList(p);
+            p.getImagePublicIds().add(resp.getPublicId());
+            p.getImageUrls().add(resp.getUrl());
         }
 
         // อัปเดต variantStocks และสรุป stockQuantity
@@ -201,36 +247,49 @@ public class ProductService {
             p.setStockQuantity(productRequest.getStockQuantity());
         }
 
+        p.setImageVariants(imageVariantFactory.of(p.getImageUrls()));
         p.setUpdatedAt(LocalDateTime.now());
-        Product saved = productRepository.save(p);
-        return mapToProductResponse(saved);
+        Product saved;
+        try {
+            saved = productRepository.save(p);
+        } catch (RuntimeException e) {
+            deletionOutbox.enqueue(uploaded.stream().map(CloudinaryUploadResponse::getPublicId).toList());
+            throw e;
+        }
+        deletionOutbox.enqueue(removed);
+        searchIndex.index(saved);
+
+        productCache.invalidate(productId);
+        productCache.invalidateCategory(oldCategory);
+        productCache.invalidateCategory(saved.getCategory());
+        categoryDirectory.invalidate();
+        versionStamps.bump(VersionStamps.PRODUCTS);
+        return productMapper.toResponse(saved);
+    }
+
+    /** ต่อท้ายรูปที่อัปโหลดตรงไป Cloudinary แล้ว (finalize ซ้ำด้วย publicId เดิม = ไม่ทำอะไร) */
+    public ProductResponse appendImage(String productId, String publicId, String url) {
+        // $push แบบ field-level: finalize หลายรูปพร้อมกันไม่ทับกัน และไม่ทับสต๊อกที่ InventoryService $inc อยู่
+        Product p = productRepository.appendImage(productId, publicId, url, imageVariantFactory.of(url));
+        if (p == null) {
+            Product existing = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            return productMapper.toResponse(existing);
+        }
+        searchIndex.index(p);
+        productCache.invalidate(productId);
+        productCache.invalidateCategory(p.getCategory());
+        versionStamps.bump(VersionStamps.PRODUCTS);
+        return productMapper.toResponse(p);
     }
 
     public List<Product> findByCategory(String categoryName) {
-        return productRepository.findByCategoryIgnoreCase(categoryName);
+        return productCache.byCategory(categoryName);
     }
 
-    /** ✅ ใช้ใน Dashboard: Top products */
+    /** ✅ ใช้ใน Dashboard: Top products (จาก bucket ยอดขายรายวัน) */
     public List<TopProductResponse> getTopProducts(int limit, String range) {
-        // TODO: ถ้ามี OrderRepository ให้ aggregate ยอดขายจริงตามช่วงเวลา (range)
-        // Fallback ชั่วคราว: ยังไม่มีข้อมูลยอดขาย -> units = 0, revenue = 0
-        // และเรียงจาก stockQuantity มาก -> น้อย เพื่อให้มีรายการขึ้นหน้าจอ
-
-        List<Product> all = productRepository.findAll();
-
-        return all.stream()
-                .sorted(Comparator
-                        .comparing(Product::getStockQuantity, Comparator.nullsFirst(Comparator.naturalOrder()))
-                        .reversed()
-                        .thenComparing(p -> Optional.ofNullable(p.getUpdatedAt()).orElse(LocalDateTime.MIN), Comparator.reverseOrder()))
-                .limit(Math.max(1, limit))
-                .map(p -> TopProductResponse.builder()
-                        .id(p.getId())
-                        .name(p.getName())
-                        .units(0L) // ยังไม่เชื่อมออเดอร์ -> 0 ไปก่อน
-                        .revenue(BigDecimal.ZERO)
-                        .build())
-                .collect(Collectors.toList());
+        return productSalesService.top(limit, range);
     }
 
     // ---------- helpers ----------
@@ -238,4 +297,44 @@ public class ProductService {
         if (p.getImagePublicIds() == null) p.setImagePublicIds(new ArrayList<>());
         if (p.getImageUrls() == null) p.setImageUrls(new ArrayList<>());
     }
+
+    private static CardSort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) return CardSort.NEWEST;
+        try {
+            return CardSort.valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("INVALID_SORT", "sort must be one of newest, oldest, name");
+        }
+    }
+
+    /** รูปแบบ cursor: sort \n ("v" + ค่า | "n" ถ้าค่าเป็น null) \n _id */
+    private static String encodeCursor(CardSort sort, Product last) {
+        Object value = sort == CardSort.NAME ? last.getName() : last.getCreatedAt();
+        String raw = sort.name() + "\n" + (value == null ? "n" : "v" + value) + "\n" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor, CardSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 3);
+            if (parts.length != 3 || !sort.name().equals(parts[0]) || !parts[2].matches("[a-f0-9]{24}")) {
+                throw new IllegalArgumentException("malformed cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new ApiException("INVALID_CURSOR", "cursor is invalid or does not match the sort");
+        }
+    }
+
+    private static Object parseCursorValue(CardSort sort, String token) {
+        if (token.startsWith("n")) return null;
+        String value = token.substring(1);
+        if (sort == CardSort.NAME) return value;
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException("INVALID_CURSOR", "cursor is invalid or does not match the sort");
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package com.shirtshop.service;
+
+import com.shirtshop.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket ในหน่วยความจำ แยก bucket ตาม (rule, key)
+ * - state ของ bucket ถูกป้องกันด้วย lock แบบ striped (ไม่ล็อกทั้ง map และไม่สร้าง lock ต่อ bucket)
+ * - bucket ที่เต็มและไม่ได้ใช้จะถูกเก็บกวาดเป็นรอบ ๆ
+ */
+@Component
+public class RateLimiter {
+
+    private static final class Bucket {
+        final long capacity;
+        final double ratePerNano;
+        double tokens;
+        long lastNanos;
+        Bucket(long capacity, double ratePerNano, long now) {
+            this.capacity = capacity; this.ratePerNano = ratePerNano;
+            this.tokens = capacity; this.lastNanos = now;
+        }
+        void refill(long now) {
+            long elapsed = now - lastNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * ratePerNano);
+                lastNanos = now;
+            }
+        }
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object[] stripes;
+    private final int maxBuckets;
+    private final MeterRegistry registry;
+    private final Counter overflow;
+
+    public RateLimiter(RateLimitProperties props, MeterRegistry registry) {
+        int n = Integer.highestOneBit(Math.max(1, props.getStripes() - 1)) << 1;
+        this.stripes = new Object[n];
+        for (int i = 0; i < n; i++) stripes[i] = new Object();
+        this.maxBuckets = Math.max(1, props.getMaxBuckets());
+        this.registry = registry;
+        this.overflow = registry.counter("http.ratelimit.overflow");
+        Gauge.builder("http.ratelimit.buckets", buckets, Map::size).register(registry);
+    }
+
+    /**
+     * หยิบ 1 token
+     * @return 0 ถ้าผ่าน, ไม่งั้นคือจำนวน ns ที่ต้องรอจนมี token ถัดไป
+     */
+    public long tryAcquire(RateLimitProperties.Rule rule, String key) {
+        long now = System.nanoTime();
+        String bucketKey = rule.getName() + '|' + key;
+
+        Bucket b = buckets.get(bucketKey);
+        if (b == null) {
+            if (buckets.size() >= maxBuckets) {
+                prune(now);
+                if (buckets.size() >= maxBuckets) {
+                    // เต็มจริง ๆ → ปล่อยผ่าน (fail open) ดีกว่าไปตัด user ปกติทิ้ง
+                    overflow.increment();
+                    return 0;
+                }
+            }
+            b = buckets.computeIfAbsent(bucketKey,
+                    k -> new Bucket(Math.max(1, rule.getCapacity()), rule.refillRate(), now));
+        }
+
+        long waitNanos;
+        synchronized (stripeFor(bucketKey)) {
+            b.refill(now);
+            if (b.tokens >= 1d) {
+                b.tokens -= 1d;
+                return 0;
+            }
+            waitNanos = (long) Math.ceil((1d - b.tokens) / b.ratePerNano);
+        }
+        registry.counter("http.ratelimit.rejected", "rule", rule.getName(), "key", rule.getKey()).increment();
+        return Math.max(1, waitNanos);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void prune() {
+        prune(System.nanoTime());
+    }
+
+    /** ลบ bucket ที่เติมจนเต็มแล้ว (ไม่มีใครใช้นานพอ) — สร้างใหม่ก็ได้ state เดิม */
+    private void prune(long now) {
+        for (Map.Entry<String, Bucket> en : buckets.entrySet()) {
+            Bucket b = en.getValue();
+            boolean idle;
+            synchronized (stripeFor(en.getKey())) {
+                b.refill(now);
+                idle = b.tokens >= b.capacity;
+            }
+            if (idle) buckets.remove(en.getKey(), b);
+        }
+    }
+
+    private Object stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+}
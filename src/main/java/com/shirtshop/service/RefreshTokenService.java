@@ -0,0 +1,195 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.RevokedToken;
+import com.shirtshop.exception.ApiException;
+import com.shirtshop.repository.RevokedTokenRepository;
+import com.shirtshop.util.BloomFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * หมุน refresh token (rotation) + เพิกถอนทั้งสาย (family)
+ * - ทุก refresh: jti เดิมถูกบันทึกว่าใช้แล้ว แล้วออก token ใหม่ในสาย (fam) เดียวกัน
+ * - ถ้ามีคนเอา jti ที่ใช้แล้วมาใช้ซ้ำ (token ถูกขโมย) → เพิกถอนทั้งสาย
+ * - เช็ค revoked ผ่าน Bloom filter ในหน่วยความจำก่อน; อ่าน Mongo เฉพาะตอน filter บอกว่า "อาจมี"
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final String FAMILY_PREFIX = "fam:";
+    /** เผื่อเวลาเครื่องไม่ตรงกันระหว่าง instance ตอน sync */
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(5);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final MongoTemplate mongoTemplate;
+    private final JwtService jwtService;
+
+    @Value("${app.jwt.refresh-expiration-ms}")
+    private long refreshExpirationMs;
+
+    @Value("${app.jwt.revocation.expected-entries:200000}")
+    private long expectedEntries;
+
+    @Value("${app.jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter revoked;
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    @PostConstruct
+    void init() {
+        mongoTemplate.indexOps(RevokedToken.class).ensureIndex(
+                new Index().on("expiresAt", Sort.Direction.ASC).expire(0).named("expiresAt_ttl"));
+        mongoTemplate.indexOps(RevokedToken.class).ensureIndex(
+                new Index().on("createdAt", Sort.Direction.ASC).named("createdAt_1"));
+        rebuild();
+    }
+
+    /**
+     * ตรวจ refresh token แล้ว mark jti ว่าใช้แล้ว
+     * @return claims ของ token เดิม (subject = userId, fam = family สำหรับออก token ใบถัดไป)
+     */
+    public Claims rotate(String refreshToken) {
+        Claims claims = parse(refreshToken);
+        String jti = claims.getId();
+        String familyId = JwtService.familyOf(claims);
+        if (jti == null || familyId == null) {
+            // token รุ่นก่อนไม่มี jti → ไม่รู้ว่าเคยถูกใช้หรือยัง ให้ login ใหม่
+            throw invalid();
+        }
+
+        if (isRevoked(FAMILY_PREFIX + familyId)) {
+            throw invalid();
+        }
+        if (isRevoked(jti)) {
+            reuseDetected(claims);
+        }
+
+        // insert ไม่ใช่ save: ถ้า refresh ซ้อนกันสองครั้งด้วย token เดียวกัน ครั้งที่สองจะชน duplicate key
+        try {
+            revokedTokenRepository.insert(RevokedToken.builder()
+                    .id(jti)
+                    .userId(claims.getSubject())
+                    .familyId(familyId)
+                    .expiresAt(expiryOf(claims))
+                    .createdAt(Instant.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            reuseDetected(claims);
+        }
+        revoked.put(jti);
+        return claims;
+    }
+
+    /** เพิกถอนทั้งสายของ refresh token นี้ (logout) — token ที่ใช้ไม่ได้อยู่แล้วก็เงียบไป */
+    public void revoke(String refreshToken) {
+        Claims claims;
+        try {
+            claims = parse(refreshToken);
+        } catch (ApiException e) {
+            return;
+        }
+        String familyId = JwtService.familyOf(claims);
+        if (familyId != null) {
+            revokeFamily(familyId, claims.getSubject());
+        }
+    }
+
+    public void revokeFamily(String familyId, String userId) {
+        String id = FAMILY_PREFIX + familyId;
+        // token ในสายนี้ที่ออกไปแล้วจะหมดอายุไม่เกิน now + refresh-expiration
+        revokedTokenRepository.save(RevokedToken.builder()
+                .id(id)
+                .userId(userId)
+                .familyId(familyId)
+                .expiresAt(Instant.now().plusMillis(refreshExpirationMs))
+                .createdAt(Instant.now())
+                .build());
+        revoked.put(id);
+    }
+
+    /** ดึงรายการที่ instance อื่นเพิ่งเพิกถอนเข้ามาใน filter */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval-ms:30000}",
+            initialDelayString = "${app.jwt.revocation.sync-interval-ms:30000}")
+    public void syncRecent() {
+        Instant startedAt = Instant.now();
+        BloomFilter filter = revoked;
+        for (RevokedToken t : revokedTokenRepository.findByCreatedAtGreaterThanEqual(lastSync.minus(SYNC_OVERLAP))) {
+            filter.put(t.getId());
+        }
+        lastSync = startedAt;
+    }
+
+    /** Bloom filter ลบไม่ได้ → สร้างใหม่เป็นรอบ ๆ จากของที่ยังไม่หมดอายุ (TTL ลบตัวเก่าให้แล้ว) */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${app.jwt.revocation.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        Instant startedAt = Instant.now();
+        long count = revokedTokenRepository.count();
+        BloomFilter fresh = new BloomFilter(Math.max(expectedEntries, count * 2), falsePositiveRate);
+
+        Query q = new Query(Criteria.where("expiresAt").gt(startedAt));
+        q.fields().include("_id");
+        try (Stream<RevokedToken> stream = mongoTemplate.stream(q, RevokedToken.class)) {
+            stream.forEach(t -> fresh.put(t.getId()));
+        }
+
+        revoked = fresh;
+        // ของที่ถูกเพิ่มระหว่างสร้าง filter ใหม่
+        lastSync = startedAt;
+        syncRecent();
+        log.info("[RefreshTokenService] revocation filter rebuilt with {} entries", count);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private boolean isRevoked(String id) {
+        return revoked.mightContain(id) && revokedTokenRepository.existsById(id);
+    }
+
+    private void reuseDetected(Claims claims) {
+        String familyId = JwtService.familyOf(claims);
+        log.warn("[RefreshTokenService] refresh token reuse detected user={} family={}", claims.getSubject(), familyId);
+        revokeFamily(familyId, claims.getSubject());
+        throw invalid();
+    }
+
+    private Claims parse(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw invalid();
+        }
+        try {
+            return jwtService.parseRefresh(refreshToken).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    private Instant expiryOf(Claims claims) {
+        Date exp = claims.getExpiration();
+        return exp != null ? exp.toInstant() : Instant.now().plusMillis(refreshExpirationMs);
+    }
+
+    private static ApiException invalid() {
+        return new ApiException("INVALID_TOKEN", "Refresh token is invalid or expired.");
+    }
+}
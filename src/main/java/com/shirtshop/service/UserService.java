@@ -8,7 +8,6 @@ import com.shirtshop.entity.User;
 import com.shirtshop.exception.ApiException;
 import com.shirtshop.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,8 +24,11 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder; // มาจาก config bean
+    private final PasswordHasher passwordHasher; // แฮชบน pool แยก (ไม่กิน servlet thread)
     private final CloudinaryService cloudinaryService;
+    private final UserSnapshotCache userSnapshotCache;
+    private final ActiveUserWindow activeUserWindow;
+    private final ImageDeletionOutbox deletionOutbox;
 
     @Value("${app.jwt.access-expiration-ms}")
     private long accessExpirationMs;
@@ -83,7 +85,7 @@ public class UserService {
                 .firstName(req.getFirstName())
                 .lastName(req.getLastName())
                 .displayName(displayName) // ใช้ displayName ที่สร้างขึ้น
-                .passwordHash(passwordEncoder.encode(req.getPassword()))
+                .passwordHash(passwordHasher.encode(req.getPassword()))
                 .phone(req.getPhone())
                 .profileImageUrl(imageUrl)
                 .profileImagePublicId(imagePublicId)
@@ -133,7 +135,23 @@ public class UserService {
         }
 
         // 4. บันทึกการเปลี่ยนแปลงลง Database
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSnapshotCache.invalidate(userId); // principal ใน request ถัดไปต้องเห็นชื่อใหม่
+        return saved;
+    }
+
+    /** เปลี่ยนรูปโปรไฟล์เป็นรูปที่อัปโหลดแล้ว (direct upload); รูปเดิมส่งเข้า outbox ให้ลบ */
+    public User setProfileImage(String userId, String url, String publicId) {
+        User user = findByIdOrThrow(userId);
+        String old = user.getProfileImagePublicId();
+        if (publicId.equals(old)) return user;
+
+        user.setProfileImageUrl(url);
+        user.setProfileImagePublicId(publicId);
+        User saved = userRepository.save(user);
+        userSnapshotCache.invalidate(userId);
+        deletionOutbox.enqueue(old);
+        return saved;
     }
 
     public Optional<User> getById(String id) {
@@ -157,48 +175,31 @@ public class UserService {
                 .orElseThrow(() -> new ApiException("USER_NOT_FOUND", "User not found"));
     }
 
+    // ใช้ $set เฉพาะฟิลด์ ไม่ต้อง findById + save ทั้งเอกสาร
     public void markActiveById(String userId) {
-        userRepository.findById(userId).ifPresent(u -> {
-            u.setActive(true);                 // รองรับทั้ง boolean/Boolean
-            u.setLastActive(Instant.now());
-            userRepository.save(u);
-        });
+        userRepository.updateActive(userId, true, Instant.now());
+        activeUserWindow.record(userId);
     }
 
     // ใช้ตอน logout หรือ session หมดอายุ
     public void markInactiveById(String userId) {
-        userRepository.findById(userId).ifPresent(u -> {
-            u.setActive(false);
-            u.setLastActive(Instant.now());
-            userRepository.save(u);
-        });
+        userRepository.updateActive(userId, false, Instant.now());
     }
 
     // เผื่อกรณีรู้ email แต่ไม่รู้ id
     public void markActiveByEmail(String email) {
         if (email == null) return;
-        userRepository.findByEmail(email.trim().toLowerCase()).ifPresent(u -> {
-            u.setActive(true);
-            u.setLastActive(Instant.now());
-            userRepository.save(u);
-        });
+        userRepository.updateActiveByEmail(email.trim().toLowerCase(), true, Instant.now());
     }
 
     public void markInactiveByEmail(String email) {
         if (email == null) return;
-        userRepository.findByEmail(email.trim().toLowerCase()).ifPresent(u -> {
-            u.setActive(false);
-            u.setLastActive(Instant.now());
-            userRepository.save(u);
-        });
+        userRepository.updateActiveByEmail(email.trim().toLowerCase(), false, Instant.now());
     }
 
     // อัปเดต lastActive อย่างเดียว (ไม่เปลี่ยน active)
     public void touchLastActive(String userId) {
-        userRepository.findById(userId).ifPresent(u -> {
-            u.setLastActive(Instant.now());
-            userRepository.save(u);
-        });
+        userRepository.updateLastActive(userId, Instant.now());
     }
 
 }
@@ -0,0 +1,75 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * แคช snapshot ของ User สำหรับ JwtAuthenticationFilter
+ * - จำกัดจำนวน (max-size) และอายุ (ttl) ต่อ entry
+ * - ต้อง invalidate เมื่อ roles เปลี่ยน / ลบ user / แก้โปรไฟล์
+ */
+@Component
+public class UserSnapshotCache {
+
+    private static class Entry {
+        final User user;
+        final long expiresAt;
+        Entry(User user, long expiresAt) {
+            this.user = user; this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> store = new ConcurrentHashMap<>();
+
+    @Value("${app.security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.security.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    public User get(String userId) {
+        if (userId == null) return null;
+        Entry e = store.get(userId);
+        if (e == null) return null;
+        if (System.currentTimeMillis() >= e.expiresAt) {
+            store.remove(userId, e);
+            return null;
+        }
+        return e.user;
+    }
+
+    public void put(User user) {
+        if (user == null || user.getId() == null) return;
+        if (store.size() >= maxSize) {
+            evict();
+        }
+        store.put(user.getId(), new Entry(user, System.currentTimeMillis() + ttlSeconds * 1000L));
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) store.remove(userId);
+    }
+
+    public void invalidateAll() {
+        store.clear();
+    }
+
+    /** ล้างตัวที่หมดอายุก่อน ถ้ายังเต็มอยู่ให้ทิ้งราว 10% เพื่อเปิดที่ว่าง */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        store.entrySet().removeIf(en -> now >= en.getValue().expiresAt);
+        if (store.size() < maxSize) return;
+
+        int toDrop = Math.max(1, maxSize / 10);
+        Iterator<String> it = store.keySet().iterator();
+        while (toDrop-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
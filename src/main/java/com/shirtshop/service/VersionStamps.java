@@ -0,0 +1,85 @@
+package com.shirtshop.service;
+
+import com.shirtshop.entity.CollectionVersion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * เวอร์ชันของข้อมูลทั้งชุด สำหรับ ETag/Last-Modified ของ GET แบบรายการ
+ * - เก็บใน Mongo (collection_versions) เพื่อให้ทุก instance เห็นเลขเดียวกันและไม่รีเซ็ตตอน restart
+ * - อ่านผ่านแคชสั้น ๆ (stamp-cache-ms) → request ที่ได้ 304 ไม่ต้องแตะ Mongo เลย
+ * - ทุกจุดที่เขียนข้อมูลชุดนั้นต้องเรียก bump()
+ */
+@Service
+@RequiredArgsConstructor
+public class VersionStamps {
+
+    public static final String PRODUCTS = "products";
+    public static final String BRANDING = "branding";
+
+    public record Stamp(long version, Instant updatedAt) {
+        /** strong ETag เช่น "products-v42" */
+        public String etag(String name) {
+            return "\"" + name + "-v" + version + "\"";
+        }
+        public long lastModifiedMillis() {
+            return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+        }
+    }
+
+    private record Cached(Stamp stamp, long expiresAt) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Cached> local = new ConcurrentHashMap<>();
+
+    @Value("${app.etag.stamp-cache-ms:1000}")
+    private long stampCacheMs;
+
+    public Stamp current(String name) {
+        Cached c = local.get(name);
+        if (c != null && System.currentTimeMillis() < c.expiresAt()) {
+            return c.stamp();
+        }
+        // ยังไม่เคยมี → สร้างเวอร์ชัน 1 (upsert) ไม่งั้นคืนค่าเดิม
+        Update u = new Update()
+                .setOnInsert("version", 1L)
+                .setOnInsert("updatedAt", Instant.now());
+        return remember(name, modify(name, u));
+    }
+
+    public Stamp bump(String name) {
+        Update u = new Update()
+                .inc("version", 1L)
+                .set("updatedAt", Instant.now());
+        return remember(name, modify(name, u));
+    }
+
+    /** ETag ของเอกสารเดี่ยวจาก updatedAt เช่น "product-<id>-<millis>" */
+    public static String documentEtag(String kind, String id, long updatedAtMillis) {
+        return "\"" + kind + "-" + id + "-" + updatedAtMillis + "\"";
+    }
+
+    private CollectionVersion modify(String name, Update u) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(name)),
+                u,
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                CollectionVersion.class);
+    }
+
+    private Stamp remember(String name, CollectionVersion v) {
+        Stamp s = new Stamp(v.getVersion(), v.getUpdatedAt());
+        local.put(name, new Cached(s, System.currentTimeMillis() + stampCacheMs));
+        return s;
+    }
+}
@@ -0,0 +1,20 @@
+package com.shirtshop.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/** แปลงชื่อหมวดเป็น key มาตรฐาน (Product.categoryKey) เพื่อ query แบบ exact ผ่าน index แทน regex ignore-case */
+public final class CategoryKeys {
+
+    private CategoryKeys() {}
+
+    /** " T-Shirts  " / "t-shirts" → "t-shirts"; null/ว่าง → null */
+    public static String normalize(String category) {
+        if (category == null) return null;
+        String s = Normalizer.normalize(category, Normalizer.Form.NFKC)
+                .trim()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+        return s.isEmpty() ? null : s;
+    }
+}
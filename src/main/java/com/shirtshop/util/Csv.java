@@ -0,0 +1,87 @@
+package com.shirtshop.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/** CSV (RFC 4180) แบบอ่านทีละแถวจาก Reader — รองรับ "..." ที่มี , / "" / ขึ้นบรรทัดใหม่ข้างใน */
+public final class Csv {
+
+    private Csv() {}
+
+    public static final class RowReader {
+        private final Reader in;
+        private int peeked = -2;
+
+        public RowReader(Reader in) {
+            this.in = in;
+        }
+
+        /** @return ฟิลด์ของแถวถัดไป หรือ null เมื่อจบไฟล์ */
+        public List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) break;
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            sb.append('"');
+                        } else {
+                            quoted = false;
+                            c = n;
+                            continue;
+                        }
+                    } else {
+                        sb.append((char) c);
+                    }
+                } else {
+                    if (c == -1 || c == '\n') break;
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') unread(n);
+                        break;
+                    }
+                    if (c == ',') {
+                        fields.add(sb.toString());
+                        sb.setLength(0);
+                    } else if (c == '"' && sb.isEmpty()) {
+                        quoted = true;
+                    } else {
+                        sb.append((char) c);
+                    }
+                }
+                c = read();
+            }
+            fields.add(sb.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private void unread(int c) {
+            peeked = c;
+        }
+    }
+
+    /** ครอบด้วย "..." เมื่อมีอักขระพิเศษ */
+    public static String escape(String value) {
+        if (value == null) return "";
+        boolean needsQuote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return needsQuote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
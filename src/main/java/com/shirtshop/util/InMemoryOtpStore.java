@@ -1,36 +1,75 @@
 package com.shirtshop.util;
 
+import com.shirtshop.exception.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * OTP ในหน่วยความจำ (ค่าเริ่มต้น: app.otp.store=memory)
+ * - ลบตัวที่หมดอายุด้วย hashed timing wheel: แต่ละ tick ตรวจเฉพาะ slot เดียว ไม่ต้องวนทั้ง map
+ * - จำกัดจำนวน entry (max-entries) กัน heap โตจาก OTP ที่ไม่มีใครมายืนยัน
+ */
 @Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
 public class InMemoryOtpStore implements OtpStore {
 
     private static class Entry {
+        final String email;
         final String otp;
-        final Instant expiresAt;
-        Entry(String otp, Instant expiresAt) {
-            this.otp = otp; this.expiresAt = expiresAt;
+        final long expiresAt;
+        Entry(String email, String otp, long expiresAt) {
+            this.email = email; this.otp = otp; this.expiresAt = expiresAt;
         }
     }
 
+    private static final int WHEEL_SIZE = 512;
+
     private final Map<String, Entry> store = new ConcurrentHashMap<>();
+    private final Queue<Entry>[] wheel;
+    private final long tickMs;
+    private final int maxEntries;
+    private long lastTick = -1; // ใช้เฉพาะใน thread ของ scheduler
+
+    @SuppressWarnings("unchecked")
+    public InMemoryOtpStore(
+            @Value("${app.otp.wheel-tick-ms:1000}") long tickMs,
+            @Value("${app.otp.max-entries:100000}") int maxEntries
+    ) {
+        this.tickMs = Math.max(10, tickMs);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.wheel = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
 
     @Override
     public void save(String email, String otp, Duration ttl) {
-        store.put(email, new Entry(otp, Instant.now().plus(ttl)));
+        if (!store.containsKey(email) && store.size() >= maxEntries) {
+            sweepAll();
+            if (store.size() >= maxEntries) {
+                throw new ApiException("OTP_UNAVAILABLE", "Too many pending OTP requests. Please try again later.");
+            }
+        }
+        Entry e = new Entry(email, otp, System.currentTimeMillis() + ttl.toMillis());
+        store.put(email, e);
+        wheel[slotOf(e.expiresAt)].add(e);
     }
 
     @Override
     public boolean verify(String email, String otp) {
         Entry e = store.get(email);
         if (e == null) return false;
-        if (Instant.now().isAfter(e.expiresAt)) {
-            store.remove(email);
+        if (System.currentTimeMillis() >= e.expiresAt) {
+            store.remove(email, e);
             return false;
         }
         return e.otp.equals(otp);
@@ -40,4 +79,48 @@ public class InMemoryOtpStore implements OtpStore {
     public void consume(String email) {
         store.remove(email);
     }
+
+    public int size() {
+        return store.size();
+    }
+
+    /** หมุน wheel: ตรวจ slot ของทุก tick ที่ผ่านมาตั้งแต่รอบก่อน (ตามทันถ้า scheduler ช้า) */
+    @Scheduled(fixedDelayString = "${app.otp.wheel-tick-ms:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        long current = now / tickMs;
+        long from = (lastTick < 0) ? current : lastTick + 1;
+        if (current - from >= WHEEL_SIZE) {
+            from = current - WHEEL_SIZE + 1;
+        }
+        for (long t = from; t <= current; t++) {
+            expireSlot((int) (t % WHEEL_SIZE), now);
+        }
+        lastTick = current;
+    }
+
+    private void expireSlot(int slot, long now) {
+        Queue<Entry> q = wheel[slot];
+        for (int n = q.size(); n > 0; n--) {
+            Entry e = q.poll();
+            if (e == null) break;
+            if (store.get(e.email) != e) continue;   // ถูก consume หรือถูกแทนด้วย OTP ใหม่แล้ว
+            if (now >= e.expiresAt) {
+                store.remove(e.email, e);
+            } else {
+                q.add(e);                            // ttl ยาวกว่า 1 รอบ wheel → รอรอบถัดไป
+            }
+        }
+    }
+
+    private void sweepAll() {
+        long now = System.currentTimeMillis();
+        store.values().removeIf(e -> now >= e.expiresAt);
+    }
+
+    /** ปัดขึ้นเป็น tick ถัดไป เพื่อให้ตอนที่ slot ถูกตรวจ entry หมดอายุแล้วแน่นอน */
+    private int slotOf(long expiresAt) {
+        long tick = (expiresAt + tickMs - 1) / tickMs;
+        return (int) (tick % WHEEL_SIZE);
+    }
 }
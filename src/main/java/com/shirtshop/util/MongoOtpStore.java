@@ -0,0 +1,73 @@
+package com.shirtshop.util;
+
+import com.shirtshop.entity.OtpToken;
+import com.shirtshop.repository.OtpTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * OTP บน Mongo (app.otp.store=mongo) — แชร์กันได้ทุก instance หลัง load balancer
+ * ไม่ต้องใช้ sticky session และไม่กิน heap; เอกสารที่หมดอายุถูกลบโดย TTL index
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "mongo")
+@RequiredArgsConstructor
+public class MongoOtpStore implements OtpStore {
+
+    private final OtpTokenRepository repo;
+    private final MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void ensureTtlIndex() {
+        mongoTemplate.indexOps(OtpToken.class).ensureIndex(
+                new Index().on("expiresAt", Sort.Direction.ASC).expire(0).named("expiresAt_ttl"));
+    }
+
+    @Override
+    public void save(String email, String otp, Duration ttl) {
+        repo.save(OtpToken.builder()
+                .email(email)
+                .otpHash(hash(email, otp))
+                .expiresAt(Instant.now().plus(ttl))
+                .build());
+    }
+
+    @Override
+    public boolean verify(String email, String otp) {
+        if (email == null || otp == null) return false;
+        return repo.findById(email)
+                // TTL monitor ของ Mongo ลบเป็นรอบ ๆ (~60s) จึงต้องเช็คเวลาเองด้วย
+                .filter(t -> t.getExpiresAt() != null && Instant.now().isBefore(t.getExpiresAt()))
+                .map(t -> MessageDigest.isEqual(
+                        t.getOtpHash().getBytes(StandardCharsets.UTF_8),
+                        hash(email, otp).getBytes(StandardCharsets.UTF_8)))
+                .orElse(false);
+    }
+
+    @Override
+    public void consume(String email) {
+        repo.deleteById(email);
+    }
+
+    private static String hash(String email, String otp) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256")
+                    .digest((email + ":" + otp).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.shirtshop.bench;
+
+import com.shirtshop.ShirtShopBackendApplication;
+import com.shirtshop.entity.Cart;
+import com.shirtshop.entity.CartItem;
+import com.shirtshop.entity.User;
+import com.shirtshop.service.JwtService;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Throughput ของ GET /api/cart ผ่าน security filter chain จริง
+ * - db     = โหลด User จาก Mongo ทุก request (แบบเดิม)
+ * - claims = roles จาก token + UserSnapshotCache
+ * Mongo เป็น mongo-java-server บน loopback (มี round-trip จริงผ่าน driver แต่เร็วกว่า Mongo จริงข้ามเครื่อง)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 20, time = 5)
+@Measurement(iterations = 10, time = 5)
+@Fork(1)
+public class CartAuthBenchmark {
+
+    @Param({"db", "claims"})
+    public String authMode;
+
+    private MongoServer mongo;
+    private ConfigurableApplicationContext ctx;
+    private MockMvc mvc;
+    private String bearer;
+
+    @Setup
+    public void setUp() {
+        mongo = new MongoServer(new MemoryBackend());
+        InetSocketAddress addr = mongo.bind();
+
+        ctx = new SpringApplicationBuilder(ShirtShopBackendApplication.class)
+                .run("--spring.data.mongodb.uri=mongodb://" + addr.getHostString() + ":" + addr.getPort() + "/bench",
+                        "--app.security.auth-mode=" + authMode,
+                        "--server.port=0",
+                        "--cloudinary.cloud_name=bench",
+                        "--cloudinary.api_key=bench",
+                        "--cloudinary.api_secret=bench",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+
+        MongoTemplate mongoTemplate = ctx.getBean(MongoTemplate.class);
+        User user = mongoTemplate.insert(User.builder()
+                .email("bench@example.com")
+                .displayName("Bench")
+                .roles(Set.of("USER"))
+                .build());
+
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(CartItem.builder()
+                    .productId("p" + i).color("Black").size("M").quantity(1)
+                    .productName("Shirt " + i).imageUrl("https://example.com/" + i + ".jpg").unitPrice(390)
+                    .build());
+        }
+        mongoTemplate.insert(Cart.builder().userId(user.getId()).items(items)
+                .createdAt(Instant.now()).updatedAt(Instant.now()).build());
+
+        bearer = "Bearer " + ctx.getBean(JwtService.class).generateToken(user);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) ctx)
+                .addFilters(ctx.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+
+        int status = getCart();
+        if (status != 200) throw new IllegalStateException("GET /api/cart returned " + status);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (ctx != null) ctx.close();
+        if (mongo != null) mongo.shutdownNow();
+    }
+
+    @Benchmark
+    public int getCart() {
+        try {
+            return mvc.perform(get("/api/cart").header("Authorization", bearer))
+                    .andReturn().getResponse().getStatus();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
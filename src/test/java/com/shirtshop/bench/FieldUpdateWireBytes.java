@@ -0,0 +1,326 @@
+package com.shirtshop.bench;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.shirtshop.ShirtShopBackendApplication;
+import com.shirtshop.entity.*;
+import com.shirtshop.repository.CartRepository;
+import com.shirtshop.repository.OrderRepository;
+import com.shirtshop.repository.UserRepository;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * จำนวน round-trip และขนาด command/response (byte ของ BSON) ต่อการเรียกหนึ่งครั้ง
+ * ของทางเดิม (findById/findByUserId + save ทั้งเอกสาร) เทียบกับ field-level update ของ user-004
+ * - นับผ่าน CommandListener ของ driver เฉพาะ command ที่ยิงไปยัง collection ของ operation นั้น
+ * - การอ่าน product ใน cart add และการอ่าน order ก่อนเปลี่ยนสถานะเหมือนกันทั้งสองทาง (อ่าน order นับรวมไว้)
+ * Mongo เป็น mongo-java-server บน loopback (ขนาด BSON เท่ากับ Mongo จริง; เวลาไม่ได้วัด)
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Dbench.main=com.shirtshop.bench.FieldUpdateWireBytes
+ */
+public class FieldUpdateWireBytes {
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    /** ยอดรวมของ command ที่ยิงไปยัง collection เดียว ตั้งแต่ reset ล่าสุด */
+    static final class Probe implements CommandListener {
+        private final Set<Integer> inFlight = new HashSet<>();
+        private String collection;
+        private int commands;
+        private long commandBytes;
+        private long replyBytes;
+        private boolean failed;
+
+        synchronized void reset(String collection) {
+            this.collection = collection;
+            inFlight.clear();
+            commands = 0;
+            commandBytes = 0;
+            replyBytes = 0;
+            failed = false;
+        }
+
+        synchronized String row(String op, String path) {
+            return String.format("%-28s %-4s %3d %8d %8s", op, path, commands, commandBytes,
+                    failed ? "n/a" : String.valueOf(replyBytes));
+        }
+
+        @Override
+        public synchronized void commandStarted(CommandStartedEvent e) {
+            BsonDocument cmd = e.getCommand();
+            String first = cmd.getFirstKey();
+            if (collection == null || !cmd.isString(first) || !collection.equals(cmd.getString(first).getValue())) return;
+            inFlight.add(e.getRequestId());
+            commands++;
+            commandBytes += size(cmd);
+        }
+
+        @Override
+        public synchronized void commandSucceeded(CommandSucceededEvent e) {
+            // reply ไม่มีชื่อ collection → จับคู่กับ command ด้วย requestId
+            if (inFlight.remove(e.getRequestId())) replyBytes += size(e.getResponse());
+        }
+
+        @Override
+        public synchronized void commandFailed(CommandFailedEvent e) {
+            if (inFlight.remove(e.getRequestId())) failed = true;
+        }
+
+        private static int size(BsonDocument doc) {
+            return new RawBsonDocument(doc, CODEC).getByteBuffer().remaining();
+        }
+    }
+
+    public static void main(String[] args) {
+        MongoServer mongo = new MongoServer(new MemoryBackend());
+        InetSocketAddress addr = mongo.bind();
+        Probe probe = new Probe();
+
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(ShirtShopBackendApplication.class)
+                .initializers(c -> c.getBeanFactory().registerSingleton("wireBytesProbe",
+                        (MongoClientSettingsBuilderCustomizer) b -> b.addCommandListener(probe)))
+                .run("--spring.data.mongodb.uri=mongodb://" + addr.getHostString() + ":" + addr.getPort() + "/bench",
+                        "--server.port=0",
+                        "--cloudinary.cloud_name=bench",
+                        "--cloudinary.api_key=bench",
+                        "--cloudinary.api_secret=bench",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.de.bwaldvogel.mongo=OFF");
+        try {
+            run(ctx, probe);
+        } finally {
+            ctx.close();
+            mongo.shutdownNow();
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext ctx, Probe probe) {
+        MongoTemplate mongoTemplate = ctx.getBean(MongoTemplate.class);
+        UserRepository users = ctx.getBean(UserRepository.class);
+        CartRepository carts = ctx.getBean(CartRepository.class);
+        OrderRepository orders = ctx.getBean(OrderRepository.class);
+
+        System.out.printf("%-28s %-4s %3s %8s %8s%n", "operation", "path", "rt", "cmd B", "reply B");
+
+        /* ---------- markActive ---------- */
+        String userId = mongoTemplate.insert(user()).getId();
+        probe.reset("users");
+        User u = users.findById(userId).orElseThrow();
+        u.setActive(true);
+        u.setLastActive(Instant.now());
+        users.save(u);
+        System.out.println(probe.row("markActive", "old"));
+
+        probe.reset("users");
+        users.updateActive(userId, true, Instant.now());
+        System.out.println(probe.row("markActive", "new"));
+
+        /* ---------- cart ---------- */
+        for (int size : new int[]{3, 10}) {
+            String owner = "cart-owner-" + size;
+            CartItem extra = item(size);
+            CartItem first = item(0);
+
+            // add (item ใหม่)
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            Cart c = carts.findByUserId(owner).orElseThrow();
+            c.getItems().add(item(size));
+            c.setUpdatedAt(Instant.now());
+            carts.save(c);
+            System.out.println(probe.row("cart add new item (" + size + ")", "old"));
+
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            carts.findByUserId(owner).orElseThrow();
+            carts.pushItem(owner, extra, Instant.now());
+            System.out.println(probe.row("cart add new item (" + size + ")", "new"));
+
+            // add (item เดิม → บวกจำนวน + snapshot)
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            c = carts.findByUserId(owner).orElseThrow();
+            CartItem hit = c.getItems().get(0);
+            hit.setQuantity(hit.getQuantity() + 1);
+            hit.setProductName(first.getProductName());
+            hit.setImageUrl(first.getImageUrl());
+            hit.setUnitPrice(first.getUnitPrice());
+            c.setUpdatedAt(Instant.now());
+            carts.save(c);
+            System.out.println(probe.row("cart add existing (" + size + ")", "old"));
+
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            c = carts.findByUserId(owner).orElseThrow();
+            try {
+                carts.updateItem(owner, c.getItems().get(0), 2, first.getProductName(), first.getImageUrl(),
+                        null, first.getUnitPrice(), Instant.now());
+            } catch (UncategorizedMongoDbException e) {
+                // mongo-java-server ไม่รองรับ items.$ คู่กับ $elemMatch (Mongo จริงรองรับ) → ได้แค่ขนาด command
+            }
+            System.out.println(probe.row("cart add existing (" + size + ")", "new"));
+
+            // remove
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            c = carts.findByUserId(owner).orElseThrow();
+            c.getItems().removeIf(it -> it.getProductId().equals(first.getProductId()));
+            c.setUpdatedAt(Instant.now());
+            carts.save(c);
+            System.out.println(probe.row("cart remove (" + size + ")", "old"));
+
+            seedCart(mongoTemplate, owner, size);
+            probe.reset("carts");
+            carts.pullItem(owner, first.getProductId(), first.getColor(), first.getSize(), Instant.now());
+            System.out.println(probe.row("cart remove (" + size + ")", "new"));
+        }
+
+        /* ---------- adminChangeStatus ---------- */
+        String orderId = mongoTemplate.insert(order()).getId();
+        probe.reset("orders");
+        Order o = orders.findById(orderId).orElseThrow();
+        o.setStatus(OrderStatus.PAID);
+        o.setStatusNote(null);
+        o.setTrackingTag("SHP-20251022-EE85CFA4");
+        o.setTrackingCreatedAt(Instant.now());
+        o.setUpdatedAt(Instant.now());
+        orders.save(o);
+        System.out.println(probe.row("adminChangeStatus PAID", "old"));
+
+        orderId = mongoTemplate.insert(order()).getId();
+        probe.reset("orders");
+        orders.findById(orderId).orElseThrow();
+        orders.markPaid(orderId, OrderStatus.SLIP_UPLOADED, "SHP-20251022-EE85CFA4", Instant.now());
+        System.out.println(probe.row("adminChangeStatus PAID", "new"));
+
+        orderId = mongoTemplate.insert(order()).getId();
+        probe.reset("orders");
+        o = orders.findById(orderId).orElseThrow();
+        o.setStatus(OrderStatus.REJECTED);
+        o.setStatusNote("สลิปไม่ชัด");
+        o.setUpdatedAt(Instant.now());
+        orders.save(o);
+        System.out.println(probe.row("adminChangeStatus REJECTED", "old"));
+
+        orderId = mongoTemplate.insert(order()).getId();
+        probe.reset("orders");
+        orders.findById(orderId).orElseThrow();
+        orders.close(orderId, OrderStatus.SLIP_UPLOADED, OrderStatus.REJECTED, "สลิปไม่ชัด", Instant.now());
+        System.out.println(probe.row("adminChangeStatus REJECTED", "new"));
+
+        probe.reset(null);
+    }
+
+    private static User user() {
+        Address a = new Address();
+        a.setFullName("สมชาย ใจดี");
+        a.setPhone("0812345678");
+        a.setAddressLine1("99/1 ถนนสุขุมวิท");
+        a.setSubdistrict("คลองเตย");
+        a.setDistrict("1033");
+        a.setProvince("1");
+        a.setDistrictName("คลองเตย");
+        a.setProvinceName("กรุงเทพมหานคร");
+        a.setPostalCode("10110");
+        a.setDefault(true);
+        Instant now = Instant.parse("2025-10-22T08:00:00Z");
+        return User.builder()
+                .email("bench@example.com")
+                .username("bench")
+                .firstName("สมชาย")
+                .lastName("ใจดี")
+                .displayName("สมชาย ใจดี")
+                .passwordHash("$2a$10$7EqJtq98hPqEX7fNZaFWoO5Y1c0uWk8lZK1p1Y8QZ4v9n1lQ8i0yG")
+                .phone("0812345678")
+                .profileImageUrl("https://res.cloudinary.com/demo/image/upload/v1/profiles/u1.jpg")
+                .profileImagePublicId("shirtshop/profiles/u1")
+                .addresses(new ArrayList<>(List.of(a)))
+                .roles(Set.of("USER"))
+                .authProvider("LOCAL")
+                .createdAt(now)
+                .updatedAt(now)
+                .lastActive(now)
+                .build();
+    }
+
+    private static CartItem item(int i) {
+        return CartItem.builder()
+                .productId("652f1c2e9b1d4a3f8c0e1b" + String.format("%02d", i))
+                .color("Black").size("L").quantity(1)
+                .productName("เสื้อยืด Oversize Cotton " + i)
+                .imageUrl("https://res.cloudinary.com/demo/image/upload/v1/products/p" + i + ".jpg")
+                .unitPrice(390)
+                .build();
+    }
+
+    private static void seedCart(MongoTemplate mongoTemplate, String userId, int size) {
+        mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId)), Cart.class);
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) items.add(item(i));
+        Instant now = Instant.parse("2025-10-22T08:00:00Z");
+        mongoTemplate.insert(Cart.builder().userId(userId).items(items)
+                .shippingFee(50).subTotal(390 * size).createdAt(now).updatedAt(now).build());
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setUserId("652f1c2e9b1d4a3f8c0e1a2c");
+        List<OrderItem> list = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            OrderItem it = new OrderItem();
+            it.setProductId("652f1c2e9b1d4a3f8c0e1b" + String.format("%02d", i));
+            it.setName("เสื้อยืด Oversize Cotton " + i);
+            it.setImageUrl("https://res.cloudinary.com/demo/image/upload/v1/products/p" + i + ".jpg");
+            it.setUnitPrice(390);
+            it.setColor("Black");
+            it.setSize("L");
+            it.setQuantity(1 + i % 3);
+            list.add(it);
+        }
+        order.setItems(list);
+        order.setSubTotal(390 * 6);
+        order.setShippingFee(50);
+        order.setTotal(390 * 6 + 50);
+        order.setPaymentMethod(PaymentMethod.values()[0]);
+        order.setStatus(OrderStatus.SLIP_UPLOADED);
+        order.setPromptpayTarget("0812345678");
+        order.setPromptpayQrUrl("https://promptpay.io/0812345678/2390.png");
+        order.setPaymentSlipUrl("https://res.cloudinary.com/demo/image/upload/v1/slips/s1.jpg");
+        order.setAddressId("652f1c2e9b1d4a3f8c0e1a2d");
+        Order.ShippingAddress sa = new Order.ShippingAddress();
+        sa.setRecipientName("สมชาย ใจดี");
+        sa.setPhone("0812345678");
+        sa.setLine1("99/1 ถนนสุขุมวิท");
+        sa.setSubDistrict("คลองเตย");
+        sa.setDistrict("คลองเตย");
+        sa.setProvince("กรุงเทพมหานคร");
+        sa.setPostcode("10110");
+        order.setShippingAddress(sa);
+        Instant now = Instant.parse("2025-10-22T08:00:00Z");
+        order.setExpiresAt(now);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        return order;
+    }
+}
@@ -0,0 +1,71 @@
+package com.shirtshop.bench;
+
+import com.shirtshop.entity.User;
+import com.shirtshop.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ต้นทุนตรวจ access token ต่อ request ใน JwtAuthenticationFilter
+ * - twoCallBaseline = validateToken + extractUserId แบบเดิม (สร้าง parser + getBytes() ทุกครั้ง, HMAC/parse 2 รอบ)
+ * - verifyMiss      = parser ที่ผูก key ไว้แล้ว parse ครั้งเดียว (กรณี cache miss)
+ * - verifyHit       = JwtService.verify กับ token ที่เคย verify แล้ว
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "BENCH_ACCESS_SECRET_MIN_32_BYTES________________________________";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "accessSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "refreshSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "accessExpirationMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "refreshExpirationMs", TimeUnit.DAYS.toMillis(1));
+        ReflectionTestUtils.setField(jwtService, "verifyCacheSize", 10_000);
+        ReflectionTestUtils.invokeMethod(jwtService, "initParsers");
+
+        token = jwtService.generateToken(User.builder()
+                .id("652f1c2e9b1d4a3f8c0e1a2b")
+                .email("bench@example.com")
+                .displayName("Bench")
+                .roles(Set.of("USER"))
+                .build());
+        jwtService.verify(token); // อุ่น cache ให้ verifyHit
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String twoCallBaseline() {
+        Jwts.parser().setSigningKey(SECRET.getBytes()).parseClaimsJws(token);
+        Claims claims = Jwts.parser()
+                .setSigningKey(SECRET.getBytes())
+                .parseClaimsJws(token)
+                .getBody();
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String verifyMiss() {
+        return jwtService.parseAccess(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String verifyHit() {
+        return jwtService.verify(token).getSubject();
+    }
+}
@@ -0,0 +1,156 @@
+package com.shirtshop.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shirtshop.entity.*;
+import com.shirtshop.mapper.OrderMapper;
+import com.shirtshop.mapper.OrderMapperImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order → response ต่อออเดอร์ ก่อน/หลังเปลี่ยนเป็น MapStruct + typed record
+ * - legacy*    = mapToOrderResponse เดิมใน OrderService (LinkedHashMap ต่อ item/ที่อยู่)
+ * - mapstruct* = OrderMapperImpl ที่ generate ออกมา
+ * *Json = map แล้ว serialize ด้วย ObjectMapper แบบเดียวกับของ Spring Boot
+ * imageVariants ของ item เป็น null เพื่อให้ payload สองฝั่งเท่ากัน
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int items;
+
+    private Order order;
+    private OrderMapper mapper;
+    private ObjectMapper json;
+
+    @Setup
+    public void setUp() {
+        mapper = new OrderMapperImpl();
+        json = Jackson2ObjectMapperBuilder.json().build();
+
+        order = new Order();
+        order.setId("652f1c2e9b1d4a3f8c0e1a2b");
+        order.setUserId("652f1c2e9b1d4a3f8c0e1a2c");
+        List<OrderItem> list = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            OrderItem it = new OrderItem();
+            it.setProductId("652f1c2e9b1d4a3f8c0e1b" + String.format("%02d", i));
+            it.setName("เสื้อยืด Oversize Cotton " + i);
+            it.setImageUrl("https://res.cloudinary.com/demo/image/upload/v1/products/p" + i + ".jpg");
+            it.setUnitPrice(390);
+            it.setColor("Black");
+            it.setSize("L");
+            it.setQuantity(1 + i % 3);
+            list.add(it);
+        }
+        order.setItems(list);
+        order.setSubTotal(390 * items);
+        order.setShippingFee(50);
+        order.setTotal(390 * items + 50);
+        order.setPaymentMethod(PaymentMethod.values()[0]);
+        order.setStatus(OrderStatus.PAID);
+        order.setPromptpayTarget("0812345678");
+        order.setPromptpayQrUrl("https://promptpay.io/0812345678/440.png");
+        order.setPaymentSlipUrl("https://res.cloudinary.com/demo/image/upload/v1/slips/s1.jpg");
+        order.setAddressId("652f1c2e9b1d4a3f8c0e1a2d");
+        Order.ShippingAddress sa = new Order.ShippingAddress();
+        sa.setRecipientName("สมชาย ใจดี");
+        sa.setPhone("0812345678");
+        sa.setLine1("99/1 ถนนสุขุมวิท");
+        sa.setSubDistrict("คลองเตย");
+        sa.setDistrict("คลองเตย");
+        sa.setProvince("กรุงเทพมหานคร");
+        sa.setPostcode("10110");
+        order.setShippingAddress(sa);
+        order.setTrackingTag("SHP-20251022-EE85CFA4");
+        Instant now = Instant.parse("2025-10-22T08:00:00Z");
+        order.setTrackingCreatedAt(now);
+        order.setExpiresAt(now);
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+    }
+
+    @Benchmark
+    public Object legacyMap() {
+        return legacy(order);
+    }
+
+    @Benchmark
+    public Object mapstructMap() {
+        return mapper.toResponse(order);
+    }
+
+    @Benchmark
+    public byte[] legacyJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(legacy(order));
+    }
+
+    @Benchmark
+    public byte[] mapstructJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(mapper.toResponse(order));
+    }
+
+    /** OrderResponse รุ่นเดิม (items/address เป็น Map) */
+    public record LegacyOrderResponse(
+            String id, String userId, List<Map<String, Object>> items,
+            int subTotal, int shippingFee, int total,
+            PaymentMethod paymentMethod, OrderStatus status,
+            String promptpayTarget, String promptpayQrUrl, Instant expiresAt, String paymentSlipUrl,
+            String addressId, Map<String, Object> address,
+            String trackingTag, Instant trackingCreatedAt, String statusNote,
+            Instant createdAt, Instant updatedAt
+    ) {}
+
+    /** สำเนาของ OrderService.mapToOrderResponse ก่อนย้ายไป OrderMapper */
+    private static LegacyOrderResponse legacy(Order o) {
+        List<Map<String, Object>> itemsPayload = o.getItems() == null ? List.of() :
+                o.getItems().stream().map(it -> {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("productId", it.getProductId());
+                    m.put("name", it.getName());
+                    m.put("imageUrl", it.getImageUrl());
+                    m.put("unitPrice", it.getUnitPrice());
+                    m.put("color", it.getColor());
+                    m.put("size", it.getSize());
+                    m.put("quantity", it.getQuantity());
+                    return m;
+                }).toList();
+
+        Map<String, Object> addrPayload = null;
+        Order.ShippingAddress sa = o.getShippingAddress();
+        if (sa != null) {
+            addrPayload = new LinkedHashMap<>();
+            addrPayload.put("recipientName", sa.getRecipientName());
+            addrPayload.put("phone", sa.getPhone());
+            addrPayload.put("line1", sa.getLine1());
+            addrPayload.put("line2", sa.getLine2());
+            addrPayload.put("subDistrict", sa.getSubDistrict());
+            addrPayload.put("district", sa.getDistrict());
+            addrPayload.put("province", sa.getProvince());
+            addrPayload.put("postcode", sa.getPostcode());
+        }
+
+        return new LegacyOrderResponse(
+                o.getId(), o.getUserId(), itemsPayload,
+                o.getSubTotal(), o.getShippingFee(), o.getTotal(),
+                o.getPaymentMethod(), o.getStatus(),
+                o.getPromptpayTarget(), o.getPromptpayQrUrl(), o.getExpiresAt(), o.getPaymentSlipUrl(),
+                o.getAddressId(), addrPayload,
+                o.getTrackingTag(), o.getTrackingCreatedAt(), o.getStatusNote(),
+                o.getCreatedAt(), o.getUpdatedAt());
+    }
+}
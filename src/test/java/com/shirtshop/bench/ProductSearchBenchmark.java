@@ -0,0 +1,83 @@
+package com.shirtshop.bench;
+
+import com.shirtshop.entity.Product;
+import com.shirtshop.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * ProductSearchIndex เทียบกับทาง regex เดิม (findByNameContainingIgnoreCase) บนแคตตาล็อกสังเคราะห์ 50k ชิ้น
+ * regexScan จำลองงานของ COLLSCAN ในโปรเซส (ไม่รวม I/O / decode BSON) จึงเป็นขอบล่างของทางเดิม
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] ADJ = {"Classic", "Oversize", "Slim", "Vintage", "Basic", "Premium", "Sport", "Cotton",
+            "คลาสสิก", "โอเวอร์ไซซ์", "วินเทจ", "พรีเมียม"};
+    private static final String[] TYPE = {"T-Shirt", "Polo Shirt", "Hoodie", "Tank Top", "Jersey", "Long Sleeve",
+            "เสื้อยืด", "เสื้อโปโล", "เสื้อฮู้ด", "เสื้อกล้าม"};
+    private static final String[] CATEGORY = {"Men", "Women", "Kids", "Unisex", "ผู้ชาย", "ผู้หญิง", "เด็ก"};
+    private static final String[] COLOR = {"Black", "White", "Navy", "Red", "Grey", "ดำ", "ขาว", "กรมท่า", "แดง"};
+
+    @Param({"50000"})
+    public int products;
+
+    @Param({"shirt", "เสื้อยืด", "vintage hoodie", "sh"})
+    public String query;
+
+    private ProductSearchIndex index;
+    private List<String> ids;
+    private List<String> names;
+    private Pattern regex;
+
+    @Setup
+    public void setUp() {
+        index = new ProductSearchIndex(null);
+        ReflectionTestUtils.setField(index, "maxDescriptionChars", 300);
+        ReflectionTestUtils.setField(index, "minShouldMatch", 0.6);
+
+        Random rnd = new Random(42);
+        ids = new ArrayList<>(products);
+        names = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product p = new Product();
+            p.setId(String.format("%024x", i));
+            p.setName(ADJ[rnd.nextInt(ADJ.length)] + " " + TYPE[rnd.nextInt(TYPE.length)] + " " + (1000 + i));
+            p.setCategory(CATEGORY[rnd.nextInt(CATEGORY.length)]);
+            p.setAvailableColors(List.of(COLOR[rnd.nextInt(COLOR.length)], COLOR[rnd.nextInt(COLOR.length)]));
+            p.setDescription("ผ้าฝ้าย 100% ใส่สบาย ระบายอากาศดี soft cotton, regular fit, รุ่น " + i);
+            index.index(p);
+            ids.add(p.getId());
+            names.add(p.getName());
+        }
+        ReflectionTestUtils.setField(index, "ready", true);
+
+        // เหมือน Spring Data: containing + ignoreCase → unanchored regex, option i
+        regex = Pattern.compile(Pattern.quote(query), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    @Benchmark
+    public List<String> invertedIndex() {
+        return index.search(query, 50);
+    }
+
+    @Benchmark
+    public List<String> regexScan() {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (regex.matcher(names.get(i)).find()) out.add(ids.get(i));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,149 @@
+package com.shirtshop.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
+import com.shirtshop.config.ImageOptimizationProperties;
+import com.shirtshop.dto.CloudinaryUploadResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * อัปโหลด 10MB พร้อมกัน 50 ไฟล์ (รวม 500MB) ภายใต้ heap 256MB (surefire execution upload-stress)
+ * ถ้า CloudinaryService ถือไฟล์ทั้งก้อนไว้ใน heap จะ OutOfMemoryError
+ * Cloudinary เป็น mock ที่อ่านไฟล์ทีละ chunk เหมือน HTTP client จริง และรอจนครบ 50 งานค่อยเริ่มอ่าน
+ */
+class CloudinaryServiceStressTest {
+
+    private static final int UPLOADS = 50;
+    private static final int FILE_BYTES = 10 * 1024 * 1024;
+    private static final long HEAP_BOUND = 256L * 1024 * 1024;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void concurrentLargeUploadsStayWithinHeapBound() throws Exception {
+        assumeTrue(Runtime.getRuntime().maxMemory() <= HEAP_BOUND + 16L * 1024 * 1024,
+                "run with -Xmx256m (mvn test → execution upload-stress)");
+
+        Path source = tmp.resolve("source.bin");
+        writeRandom(source, FILE_BYTES);
+        Path uploadDir = Files.createDirectories(tmp.resolve("uploads"));
+
+        CountDownLatch allInFlight = new CountDownLatch(UPLOADS);
+        AtomicLong streamed = new AtomicLong();
+        AtomicInteger seq = new AtomicInteger();
+        Uploader uploader = mock(Uploader.class);
+        when(uploader.upload(any(), anyMap())).thenAnswer(inv -> {
+            File f = inv.getArgument(0);
+            allInFlight.countDown();
+            assertTrue(allInFlight.await(60, TimeUnit.SECONDS), "uploads did not overlap");
+            byte[] chunk = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(f.toPath())) {
+                for (int n; (n = in.read(chunk)) > 0; ) streamed.addAndGet(n);
+            }
+            String id = "stress/" + seq.incrementAndGet();
+            return Map.of("public_id", id, "secure_url", "https://res.cloudinary.com/demo/" + id);
+        });
+        Cloudinary cloudinary = mock(Cloudinary.class);
+        when(cloudinary.uploader()).thenReturn(uploader);
+
+        ImageOptimizationStage stage = new ImageOptimizationStage(
+                new ImageIoOptimizer(), new ImageOptimizationProperties(), new SimpleMeterRegistry());
+        CloudinaryService service = new CloudinaryService(cloudinary, stage);
+        ReflectionTestUtils.setField(service, "tempDir", uploadDir.toString());
+
+        ExecutorService pool = Executors.newFixedThreadPool(UPLOADS);
+        try {
+            List<Future<CloudinaryUploadResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                MultipartFile file = new DiskMultipartFile(source);
+                futures.add(pool.submit(() -> service.uploadFile(file, "shirtshop/slips")));
+            }
+            for (Future<CloudinaryUploadResponse> f : futures) {
+                assertNotNull(f.get(120, TimeUnit.SECONDS).getPublicId());
+            }
+        } finally {
+            pool.shutdownNow();
+            stage.shutdown();
+        }
+
+        assertEquals((long) UPLOADS * FILE_BYTES, streamed.get());
+        try (var left = Files.list(uploadDir)) {
+            assertEquals(0, left.count(), "temp files were not cleaned up");
+        }
+    }
+
+    private static void writeRandom(Path p, int bytes) throws IOException {
+        byte[] buf = new byte[1024 * 1024];
+        Random rnd = new Random(7);
+        try (var out = Files.newOutputStream(p)) {
+            for (int left = bytes; left > 0; left -= buf.length) {
+                rnd.nextBytes(buf);
+                out.write(buf, 0, Math.min(buf.length, left));
+            }
+        }
+    }
+
+    /** multipart ที่อยู่บนดิสก์เหมือน part ขนาดใหญ่ของ Tomcat; getBytes() ล้มเพื่อจับการโหลดทั้งก้อนเข้า heap */
+    private static final class DiskMultipartFile implements MultipartFile {
+        private final Path source;
+
+        DiskMultipartFile(Path source) {
+            this.source = source;
+        }
+
+        @Override public String getName() { return "file"; }
+        @Override public String getOriginalFilename() { return "slip.bin"; }
+        @Override public String getContentType() { return "application/octet-stream"; }
+        @Override public boolean isEmpty() { return getSize() == 0; }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(source);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("upload must not buffer the whole file in heap");
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(source);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(source, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}